@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -17,6 +19,10 @@ public class ArrayList<E> implements Serializable, Iterable<E> {
      * current number of elements in the list
      */
     private int size;
+    /**
+     * how the array grows when it runs out of room
+     */
+    private GrowthPolicy growthPolicy;
     /**
      * default capacity of the starting list
      */
@@ -39,13 +45,26 @@ public class ArrayList<E> implements Serializable, Iterable<E> {
      *
      * @param capacity starting capacity of the ArrayList
      */
-    @SuppressWarnings("unchecked")
     public ArrayList(int capacity) {
+        this(capacity, GrowthPolicy.DOUBLING);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty list with the given capacity, growing as the
+     * policy decides
+     *
+     * @param capacity starting capacity of the ArrayList
+     * @param growthPolicy how the array grows when it runs out of room
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList(int capacity, GrowthPolicy growthPolicy) {
         if (capacity < 0) {
             throw new IllegalArgumentException("capacity: " + capacity);
         }
         elementData = (E[]) new Object[capacity];
         size = 0;
+        this.growthPolicy = growthPolicy;
     }
 
     /**
@@ -245,20 +264,50 @@ public class ArrayList<E> implements Serializable, Iterable<E> {
 
     /**
      * post: ensures that the underlying array has the given capacity; if not,
-     * the size is doubled (or more if given capacity is even larger)
+     * the size grows as the growth policy decides (or more if given capacity is
+     * even larger)
      *
      * @param capacity current capacity of the List
      */
     public void ensureCapacity(int capacity) {
         if (capacity > elementData.length) {
-            int newCapacity = elementData.length * 2 + 1;
-            if (capacity > newCapacity) {
-                newCapacity = capacity;
-            }
-            elementData = Arrays.copyOf(elementData, newCapacity);
+            elementData = Arrays.copyOf(elementData, growthPolicy.grow(elementData.length, capacity));
+        }
+    }
+
+    /**
+     * post: reads the list back, a list serialized before lists had a growth policy
+     * gets DOUBLING, the growth it had then
+     *
+     * @param in stream holding the serialized list
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if the class of an element cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (growthPolicy == null) {
+            growthPolicy = GrowthPolicy.DOUBLING;
         }
     }
 
+    /**
+     * Retrieves how the array grows when it runs out of room
+     *
+     * @return the growth policy of the list
+     */
+    public GrowthPolicy getGrowthPolicy() {
+        return growthPolicy;
+    }
+
+    /**
+     * Changes how the array grows the next time it runs out of room
+     *
+     * @param growthPolicy the new growth policy
+     */
+    public void setGrowthPolicy(GrowthPolicy growthPolicy) {
+        this.growthPolicy = growthPolicy;
+    }
+
     /**
      * post: throws an IndexOutOfBoundsException if the given index is
      * not a legal index of the current list
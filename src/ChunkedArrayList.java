@@ -0,0 +1,387 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Makes a generic list with the same methods as ArrayList which stores its elements
+ * in fixed-size chunks instead of one array. Growing adds a chunk and never copies
+ * the elements already stored, only the small directory of chunks is copied, so very
+ * large lists need no single huge allocation. The chunk of an index is found with a
+ * shift and its position in the chunk with a mask
+ *
+ * @param <E> Generic type to be replaced by desired type checking parameter
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class ChunkedArrayList<E> implements Serializable, Iterable<E> {
+    /**
+     * base two logarithm of the number of elements in a chunk
+     */
+    public static final int CHUNK_SHIFT = 12;
+    /**
+     * number of elements in a chunk
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * mask giving the position of an index within its chunk
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * default number of chunks the directory starts with
+     */
+    private static final int DEFAULT_DIRECTORY = 16;
+    /**
+     * serializable ID
+     */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * chunks of values, only the first chunkCount are allocated
+     */
+    private E[][] chunks;
+    /**
+     * number of allocated chunks
+     */
+    private int chunkCount;
+    /**
+     * current number of elements in the list
+     */
+    private int size;
+
+    /**
+     * Constructor, initialize ChunkedArrayList to one chunk
+     */
+    public ChunkedArrayList() {
+        this(CHUNK_SIZE);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty list with room for at least capacity elements
+     *
+     * @param capacity starting capacity of the ChunkedArrayList
+     */
+    @SuppressWarnings("unchecked")
+    public ChunkedArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        chunks = (E[][]) new Object[Math.max(DEFAULT_DIRECTORY, chunksFor(capacity))][];
+        size = 0;
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Removed all null from the ChunkedArrayList and release the chunks no longer needed.
+     */
+    public void compressNull() {
+        int marker = 0;
+        for (int idx = 0; idx < size; idx++) {
+            E value = chunks[idx >>> CHUNK_SHIFT][idx & CHUNK_MASK];
+            if (value != null) {
+                chunks[marker >>> CHUNK_SHIFT][marker & CHUNK_MASK] = value;
+                marker++;
+            }
+        }
+        for (int idx = marker; idx < size; idx++) {
+            chunks[idx >>> CHUNK_SHIFT][idx & CHUNK_MASK] = null;
+        }
+        size = marker;
+        int needed = chunksFor(size);
+        for (int chunk = needed; chunk < chunkCount; chunk++) {
+            chunks[chunk] = null;
+        }
+        chunkCount = needed;
+    }
+
+    /**
+     * post: returns the current number of elements in the list
+     *
+     * @return the current number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the value at the given index in the list
+     *
+     * @param index index of the element desired
+     * @return the requested element
+     */
+    public E get(int index) {
+        checkIndex(index);
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * creates a comma-separated, bracketed version of the list
+     *
+     * @return a string representation of the ChunkedArrayList
+     */
+    public String toString() {
+        if (size == 0) {
+            return "[]";
+        }
+        StringBuilder result = new StringBuilder("[").append(get(0));
+        for (int i = 1; i < size; i++) {
+            result.append(", ").append(get(i));
+        }
+        return result.append("]").toString();
+    }
+
+    /**
+     * post : returns the position of the first occurrence of the given
+     * value (-1 if not found)
+     *
+     * @param value the value to be searched
+     * @return index of the value requested, -1 if not found
+     */
+    public int indexOf(E value) {
+        for (int i = 0; i < size; i++) {
+            if (chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * returns true if list is empty, false otherwise
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * post: returns true if the given value is contained in the list,
+     * false otherwise
+     *
+     * @param value value to be searched
+     * @return true if found, false otherwise
+     */
+    public boolean contains(E value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * post: appends the given value to the end of the list
+     *
+     * @param value element to be added
+     */
+    public void add(E value) {
+        if ((size >>> CHUNK_SHIFT) == chunkCount) {
+            ensureCapacity(size + 1);
+        }
+        chunks[size >>> CHUNK_SHIFT][size & CHUNK_MASK] = value;
+        size++;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt;= size() (throws IndexOutOfBoundsException if not)
+     * post: inserts the given value at the given index, shifting subsequent
+     * values right
+     *
+     * @param index position in the ChunkedArrayList to be added
+     * @param value element to be added
+     */
+    public void add(int index, E value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        ensureCapacity(size + 1);
+        for (int i = size; i >= index + 1; i--) {
+            chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = chunks[(i - 1) >>> CHUNK_SHIFT][(i - 1) & CHUNK_MASK];
+        }
+        chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = value;
+        size++;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: removes value at the given index, shifting subsequent values left
+     *
+     * @param index index of the item to be removed
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        for (int i = index; i < size - 1; i++) {
+            chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = chunks[(i + 1) >>> CHUNK_SHIFT][(i + 1) & CHUNK_MASK];
+        }
+        chunks[(size - 1) >>> CHUNK_SHIFT][(size - 1) & CHUNK_MASK] = null;
+        size--;
+    }
+
+    /**
+     * Added method to remove an object
+     *
+     * @param value object to be removed
+     */
+    public void remove(E value) {
+        if (contains(value)) {
+            remove(indexOf(value));
+        }
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: replaces the value at the given index with the given value
+     *
+     * @param index index of the element to be updated
+     * @param value new value
+     */
+    public void set(int index, E value) {
+        checkIndex(index);
+        chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Clears the list and reset size, the chunks are kept for reuse
+     * post: list is empty
+     */
+    public void clear() {
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            Arrays.fill(chunks[chunk], null);
+        }
+        size = 0;
+    }
+
+    /**
+     * post: appends all values in the given list to the end of this list
+     *
+     * @param other list to be appended to current list
+     */
+    public void addAll(ChunkedArrayList<E> other) {
+        int count = other.size;
+        ensureCapacity(size + count);
+        for (int i = 0; i < count; i++) {
+            add(other.chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+        }
+    }
+
+    /**
+     * returns an iterator for this list
+     *
+     * @return an iterator for this list
+     */
+    public Iterator<E> iterator() {
+        return new ChunkedArrayListIterator();
+    }
+
+    /**
+     * post: ensures that the chunks have room for the given capacity; if not,
+     * chunks are added, the elements already stored are never copied
+     *
+     * @param capacity current capacity of the List
+     */
+    @SuppressWarnings("unchecked")
+    public void ensureCapacity(int capacity) {
+        int needed = chunksFor(capacity);
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length * 2));
+        }
+        while (chunkCount < needed) {
+            chunks[chunkCount++] = (E[]) new Object[CHUNK_SIZE];
+        }
+    }
+
+    /**
+     * post: returns the number of chunks holding the given number of elements
+     *
+     * @param capacity number of elements
+     * @return number of chunks needed
+     */
+    private static int chunksFor(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("required capacity: " + Integer.toUnsignedString(capacity));
+        }
+        return (int) (((long) capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * post: throws an IndexOutOfBoundsException if the given index is
+     * not a legal index of the current list
+     *
+     * @param index index to be checked
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Private class responsible for the functionality of an Iterator, it walks one
+     * chunk at a time instead of locating every index
+     */
+    private class ChunkedArrayListIterator implements Iterator<E> {
+        /**
+         * current position within the list
+         */
+        private int position;
+        /**
+         * chunk holding the element at position
+         */
+        private E[] chunk;
+        /**
+         * whether it's okay to remove now
+         */
+        private boolean removeOK;
+
+        /**
+         * post: constructs an iterator for the given list
+         */
+        public ChunkedArrayListIterator() {
+            position = 0;
+            chunk = chunkCount > 0 ? chunks[0] : null;
+            removeOK = false;
+        }
+
+        /**
+         * post: returns true if there are more elements left, false otherwise
+         *
+         * @return true if there are more elements left, false otherwise
+         */
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        /**
+         * pre : hasNext() (throws NoSuchElementException if not)
+         * post: returns the next element in the iteration
+         *
+         * @return the next element in iteration
+         */
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int offset = position & CHUNK_MASK;
+            if (offset == 0) {
+                chunk = chunks[position >>> CHUNK_SHIFT];
+            }
+            E result = chunk[offset];
+            position++;
+            removeOK = true;
+            return result;
+        }
+
+        /**
+         * pre : next() has been called without a call on remove (throw IllegalStateException if not)
+         * post: removes the last element returned by the iterator
+         */
+        public void remove() {
+            if (!removeOK) {
+                throw new IllegalStateException();
+            }
+            ChunkedArrayList.this.remove(position - 1);
+            position--;
+            chunk = chunks[position >>> CHUNK_SHIFT];
+            removeOK = false;
+        }
+    }
+}
@@ -2,7 +2,8 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 /**
- * Class encapsulate the relevant attributes about a circle
+ * Class encapsulate the relevant attributes about a circle. The color is kept as
+ * an index into the palette of the fractal the circle belongs to
  *
  * @author stevenwang
  * @version 2020-08-16
@@ -17,8 +18,8 @@ public class Circle {
     private final double width;
     /** height of the circle, same as diameter */
     private final double height;
-    /** color of the circle */
-    private final Color color;
+    /** index of the color of the circle in the palette */
+    private final byte colorIndex;
 
     /**
      * Constructor for the circle
@@ -26,14 +27,14 @@ public class Circle {
      * @param y y coordinate of the drawing window
      * @param width width of the circle, same as diameter
      * @param height height of the circle, same as diameter
-     * @param color color of the circle
+     * @param colorIndex index of the color of the circle in the palette of its fractal
      */
-    public Circle(double x, double y, double width, double height, Color color) {
+    public Circle(double x, double y, double width, double height, byte colorIndex) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
-        this.color = color;
+        this.colorIndex = colorIndex;
     }
 
     /**
@@ -70,19 +71,29 @@ public class Circle {
 
     /**
      * Retrieves the color of the circle
+     * @param palette palette of the fractal the circle belongs to
      * @return the color of the circle
      */
-    public Color getColor() {
-        return color;
+    public Color getColor(Palette palette) {
+        return palette.getColor(colorIndex & 0xFF);
+    }
+
+    /**
+     * Retrieves the index of the color of the circle in the palette of its fractal
+     * @return the palette index of the circle
+     */
+    public byte getColorIndex() {
+        return colorIndex;
     }
 
     /**
      * Draws the circles
      *
      * @param g the graphics element
+     * @param palette palette of the fractal the circle belongs to
      */
-    public void draw(Graphics g){
-        g.setColor(color);
+    public void draw(Graphics g, Palette palette){
+        g.setColor(getColor(palette));
         g.fillOval((int)x, (int)y, (int)width, (int)height);
     }
 }
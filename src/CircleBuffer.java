@@ -0,0 +1,700 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Stores circles as parallel arrays of primitives instead of Circle objects,
+ * each circle is an x, y, diameter and the index of its color in the palette.
+ * The circles are drawn in the order of their indexes, except in a buffer holding
+ * a complete binary tree level by level, made by the incremental generator, which
+ * is drawn in preorder. Readers that draw go through forEachInDrawingOrder, and
+ * drawRank gives the position of a circle in the drawing order
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class CircleBuffer implements CircleConsumer {
+
+    /** palette index of the pads */
+    public static final byte PAD = 0;
+    /** palette index of the pears */
+    public static final byte PEAR = 1;
+    /** bytes of memory used by each circle in the buffer */
+    public static final int BYTES_PER_CIRCLE = 3 * Double.BYTES + Byte.BYTES;
+    /** default capacity of the starting buffer */
+    public static final int DEFAULT_CAPACITY = 50;
+    /** largest number of circles of one color in a row filled as one shape by drawBatched */
+    public static final int DRAW_BATCH = 16;
+    /** smallest radius, in pixels, circles clipped to a view are shrunk to */
+    public static final double VIEW_RADIUS_LIMIT = 1 << 24;
+
+    /** x coordinates of the drawing window */
+    private double[] xs;
+    /** y coordinates of the drawing window */
+    private double[] ys;
+    /** diameters of the circles */
+    private double[] diameters;
+    /** palette index of the circles, null when the buffer holds a tree level by level */
+    private byte[] colorIndexes;
+    /** current number of circles in the buffer */
+    private int size;
+    /** colors of the circles, indexed by PAD and PEAR */
+    private final Palette palette;
+    /** whether the arrays are also held by another buffer, they are copied before the first change */
+    private boolean shared;
+    /** levels of the complete binary tree stored level by level, 0 when the circles are stored in drawing order */
+    private int treeLevels;
+
+    /**
+     * Constructor, initialize the buffer to default capacity
+     *
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    public CircleBuffer(Color padColor, Color pearColor) {
+        this(DEFAULT_CAPACITY, padColor, pearColor);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty buffer with the given capacity whose colors are
+     *       not chosen yet, they are set later with setPalette
+     *
+     * @param capacity starting capacity of the buffer
+     */
+    public CircleBuffer(int capacity) {
+        this(capacity, null, null);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty buffer with the given capacity
+     *
+     * @param capacity starting capacity of the buffer
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    public CircleBuffer(int capacity, Color padColor, Color pearColor) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+        diameters = new double[capacity];
+        colorIndexes = new byte[capacity];
+        palette = new Palette(padColor, pearColor);
+    }
+
+    /**
+     * Constructor for a buffer holding a complete binary tree level by level, the
+     * children of the circle at index i are at 2i + 1 and 2i + 2. The circles of
+     * the last level are pears and the others pads. The arrays are shared, not copied,
+     * the tree only reads their first 2^levels - 1 entries
+     *
+     * @param xs x coordinates of the drawing window, level by level
+     * @param ys y coordinates of the drawing window, level by level
+     * @param diameters diameters of the circles, level by level
+     * @param levels number of levels of the tree
+     */
+    CircleBuffer(double[] xs, double[] ys, double[] diameters, int levels) {
+        this.xs = xs;
+        this.ys = ys;
+        this.diameters = diameters;
+        size = (1 << levels) - 1;
+        palette = new Palette(null, null);
+        shared = true;
+        treeLevels = levels;
+    }
+
+    /**
+     * Constructor for a buffer sharing the circles of another one, see withPalette
+     *
+     * @param circles buffer whose arrays are shared
+     * @param palette colors of the new buffer
+     */
+    private CircleBuffer(CircleBuffer circles, Palette palette) {
+        xs = circles.xs;
+        ys = circles.ys;
+        diameters = circles.diameters;
+        colorIndexes = circles.colorIndexes;
+        size = circles.size;
+        treeLevels = circles.treeLevels;
+        this.palette = palette;
+        shared = true;
+        circles.shared = true;
+    }
+
+    /**
+     * post: returns the current number of circles in the buffer
+     *
+     * @return the current number of circles in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns true if buffer is empty, false otherwise
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * post: appends the given circle to the end of the buffer
+     *
+     * @param x x coordinate of the drawing window
+     * @param y y coordinate of the drawing window
+     * @param diameter diameter of the circle
+     * @param colorIndex palette index of the circle, PAD or PEAR
+     */
+    public void add(double x, double y, double diameter, byte colorIndex) {
+        copyIfShared();
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        diameters[size] = diameter;
+        colorIndexes[size] = colorIndex;
+        size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void accept(double x, double y, double diameter, byte colorIndex) {
+        add(x, y, diameter, colorIndex);
+    }
+
+    /**
+     * post: appends all circles in the given buffer to the end of this buffer
+     *
+     * @param other buffer to be appended to current buffer
+     */
+    public void addAll(CircleBuffer other) {
+        copyIfShared();
+        ensureCapacity(size + other.size);
+        if (other.treeLevels > 0) {
+            other.forEachInDrawingOrder(i -> add(other.xs[i], other.ys[i], other.diameters[i], other.getColorIndex(i)));
+            return;
+        }
+        System.arraycopy(other.xs, 0, xs, size, other.size);
+        System.arraycopy(other.ys, 0, ys, size, other.size);
+        System.arraycopy(other.diameters, 0, diameters, size, other.size);
+        System.arraycopy(other.colorIndexes, 0, colorIndexes, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: replaces the circle at the given index
+     *
+     * @param index index of the circle
+     * @param x x coordinate of the drawing window
+     * @param y y coordinate of the drawing window
+     * @param diameter diameter of the circle
+     * @param colorIndex palette index of the circle, PAD or PEAR
+     */
+    public void set(int index, double x, double y, double diameter, byte colorIndex) {
+        checkIndex(index);
+        copyIfShared();
+        xs[index] = x;
+        ys[index] = y;
+        diameters[index] = diameter;
+        colorIndexes[index] = colorIndex;
+    }
+
+    /**
+     * pre : size &gt;= 0 (throws IllegalArgumentException if not)
+     * post: grows or shrinks the buffer to the given size, circles past the old size
+     *       are left as the arrays held them until they are set
+     *
+     * @param size new number of circles in the buffer
+     */
+    void setSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size: " + size);
+        }
+        copyIfShared();
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    /**
+     * Returns a consumer storing the circles it receives at consecutive indexes from
+     * the given one on, replacing the circles there. Consumers writing to separate
+     * ranges of a buffer sized with setSize can run on different threads
+     *
+     * @param from index of the first circle to replace
+     * @return a consumer writing into the buffer
+     */
+    CircleConsumer writer(int from) {
+        return new CircleConsumer() {
+            /** index of the next circle to replace */
+            private int next = from;
+
+            @Override
+            public void accept(double x, double y, double diameter, byte colorIndex) {
+                set(next++, x, y, diameter, colorIndex);
+            }
+        };
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the x coordinate of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return x coordinate of the drawing window
+     */
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the y coordinate of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return y coordinate of the drawing window
+     */
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the diameter of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return diameter of the circle
+     */
+    public double getDiameter(int index) {
+        checkIndex(index);
+        return diameters[index];
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the palette index of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return palette index of the circle, PAD or PEAR
+     */
+    public byte getColorIndex(int index) {
+        checkIndex(index);
+        return colorIndex(index);
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the color of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return color of the circle
+     */
+    public Color getColor(int index) {
+        checkIndex(index);
+        return palette.getColor(colorIndex(index));
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the position of the circle at the given index in the drawing
+     *       order, the index itself unless the buffer holds a tree level by level
+     *
+     * @param index index of the circle
+     * @return number of circles drawn before it
+     */
+    public int drawRank(int index) {
+        checkIndex(index);
+        if (treeLevels == 0) {
+            return index;
+        }
+        // a circle at position p of level d follows d ancestors and the subtrees left of its path
+        int level = 31 - Integer.numberOfLeadingZeros(index + 1);
+        int position = index + 1 - (1 << level);
+        return (int) (level + ((long) position << (treeLevels - level)) - Integer.bitCount(position));
+    }
+
+    /**
+     * Hands the index of every circle to the action in the order the circles are
+     * drawn, the order of the indexes unless the buffer holds a tree level by level,
+     * which is visited in preorder, a circle then its left and right subtrees
+     *
+     * @param action receives the indexes of the circles
+     */
+    public void forEachInDrawingOrder(IntConsumer action) {
+        if (treeLevels == 0) {
+            for (int i = 0; i < size; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        if (size > 0) {
+            forEachInTree(0, action);
+        }
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not) and the
+     *       buffer holds a whole fractal, a complete binary tree in preorder or level
+     *       by level (throws IllegalStateException if not)
+     * post: returns the number of circles in the subtree of the circle, the circle
+     *       and all circles branching off it. In drawing order the subtree is the
+     *       circles from the circle's drawRank on
+     *
+     * @param index index of the circle
+     * @return number of circles in its subtree
+     */
+    public int subtreeSize(int index) {
+        checkIndex(index);
+        if (treeLevels > 0) {
+            return (1 << (treeLevels - (31 - Integer.numberOfLeadingZeros(index + 1)))) - 1;
+        }
+        if (Integer.bitCount(size + 1) != 1) {
+            throw new IllegalStateException("not a complete tree: " + size + " circles");
+        }
+        // walk down from the first circle, the left subtree follows a circle and the right one follows that
+        int circle = 0;
+        int subtree = size;
+        while (circle != index) {
+            subtree /= 2;
+            circle += index <= circle + subtree ? 1 : 1 + subtree;
+        }
+        return subtree;
+    }
+
+    /**
+     * pre : as subtreeSize
+     * post: hands the index of every circle in the subtree of the circle to the
+     *       action, in the order the circles are drawn
+     *
+     * @param index index of the circle
+     * @param action receives the indexes of the circles
+     */
+    public void forEachInSubtree(int index, IntConsumer action) {
+        int subtree = subtreeSize(index);
+        if (treeLevels > 0) {
+            forEachInTree(index, action);
+            return;
+        }
+        for (int i = index; i < index + subtree; i++) {
+            action.accept(i);
+        }
+    }
+
+    /**
+     * Visits the subtree of a circle of a tree held level by level in preorder
+     *
+     * @param index index of the circle
+     * @param action receives the indexes of the circles
+     */
+    private void forEachInTree(int index, IntConsumer action) {
+        int[] stack = new int[treeLevels + 1];
+        int top = 0;
+        stack[top++] = index;
+        while (top > 0) {
+            int circle = stack[--top];
+            action.accept(circle);
+            int left = 2 * circle + 1;
+            if (left < size) {
+                stack[top++] = left + 1;
+                stack[top++] = left;
+            }
+        }
+    }
+
+    /**
+     * Replaces the colors of the palette, recoloring every circle at once
+     *
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    public void setPalette(Color padColor, Color pearColor) {
+        palette.setColor(PAD, padColor);
+        palette.setColor(PEAR, pearColor);
+    }
+
+    /**
+     * Creates a buffer holding the same circles with other colors, without copying
+     * them. The two buffers share their arrays until either one is changed, which
+     * then copies them first, so recoloring or changing one never shows in the other
+     *
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     * @return a buffer of the same circles with the given colors
+     */
+    CircleBuffer withPalette(Color padColor, Color pearColor) {
+        return new CircleBuffer(this, new Palette(padColor, pearColor));
+    }
+
+    /**
+     * Returns whether the circles of the buffer are those of another one, as shared
+     * by withPalette and not changed since
+     *
+     * @param other the other buffer
+     * @return true if both buffers hold the same arrays and size
+     */
+    boolean sharesCircles(CircleBuffer other) {
+        return xs == other.xs && size == other.size;
+    }
+
+    /**
+     * Retrieves the palette the colors of the circles are looked up in
+     *
+     * @return the palette of the buffer, indexed by PAD and PEAR
+     */
+    public Palette getPalette() {
+        return palette;
+    }
+
+    /**
+     * Creates a copy of the buffer seen through a zoomed and panned view, the point
+     * (originX, originY) moves to (0, 0) and every length is multiplied by scale.
+     * Deep zooms can push the coordinates out of the range of an int, drawing them
+     * needs the clipped transform below
+     *
+     * @param scale zoom factor of the view
+     * @param originX x coordinate shown at the left edge of the view
+     * @param originY y coordinate shown at the top edge of the view
+     * @return a new buffer in the coordinates of the view, with the same colors
+     */
+    public CircleBuffer transform(double scale, double originX, double originY) {
+        CircleBuffer view = new CircleBuffer(size, palette.getColor(PAD), palette.getColor(PEAR));
+        forEachInDrawingOrder(i -> view.add((xs[i] - originX) * scale, (ys[i] - originY) * scale, diameters[i] * scale, colorIndex(i)));
+        return view;
+    }
+
+    /**
+     * Creates a copy of the buffer seen through a zoomed and panned view of the given
+     * size, see transform(double, double, double). The circles are clipped to the view
+     * in double precision so their coordinates fit in an int at any zoom. Circles
+     * outside the view are left out, a circle covering the whole view is replaced by
+     * one just covering it, and a circle larger than VIEW_RADIUS_LIMIT is shrunk about
+     * its point nearest the center of the view, which moves its edge inside a view up
+     * to 7000 pixels across by less than a tenth of a pixel
+     *
+     * @param scale zoom factor of the view
+     * @param originX x coordinate shown at the left edge of the view
+     * @param originY y coordinate shown at the top edge of the view
+     * @param width width of the view in pixels
+     * @param height height of the view in pixels
+     * @return a new buffer in the coordinates of the view, with the same colors
+     */
+    public CircleBuffer transform(double scale, double originX, double originY, int width, int height) {
+        CircleBuffer view = new CircleBuffer(size, palette.getColor(PAD), palette.getColor(PEAR));
+        double centerX = width / 2.0;
+        double centerY = height / 2.0;
+        double halfDiagonal = Math.hypot(centerX, centerY);
+        // the edge of a circle this large bends away from its tangent by d^2 / (2 r) over a distance d
+        double radiusLimit = Math.min(Integer.MAX_VALUE / 8, Math.max(VIEW_RADIUS_LIMIT, 20 * halfDiagonal * halfDiagonal));
+        forEachInDrawingOrder(i -> {
+            double radius = diameters[i] * scale / 2;
+            double x = (xs[i] - originX) * scale + radius;
+            double y = (ys[i] - originY) * scale + radius;
+            double outsideX = Math.max(0, Math.max(-x, x - width));
+            double outsideY = Math.max(0, Math.max(-y, y - height));
+            if (outsideX * outsideX + outsideY * outsideY > (radius + 1) * (radius + 1)) {
+                return;
+            }
+            double farX = Math.max(Math.abs(x), Math.abs(x - width));
+            double farY = Math.max(Math.abs(y), Math.abs(y - height));
+            if (radius > halfDiagonal + 2 && farX * farX + farY * farY < (radius - 1) * (radius - 1)) {
+                x = centerX;
+                y = centerY;
+                radius = halfDiagonal + 2;
+            } else if (radius > radiusLimit) {
+                double distance = Math.hypot(x - centerX, y - centerY);
+                double shift = (distance - radius + radiusLimit) / distance;
+                x = centerX + (x - centerX) * shift;
+                y = centerY + (y - centerY) * shift;
+                radius = radiusLimit;
+            }
+            view.add(x - radius, y - radius, radius * 2, colorIndex(i));
+        });
+        return view;
+    }
+
+    /**
+     * Creates a Circle object for every circle in the buffer. The circles keep only
+     * their palette index, their colors are looked up in getPalette
+     *
+     * @return an array list of circle objects in the drawing order
+     */
+    public ArrayList<Circle> toCircles() {
+        ArrayList<Circle> circles = new ArrayList<>(size);
+        forEachInDrawingOrder(i -> circles.add(new Circle(xs[i], ys[i], diameters[i], diameters[i], colorIndex(i))));
+        return circles;
+    }
+
+    /**
+     * Draws all circles in the buffer in order, the color is only set where it
+     * changes from one circle to the next
+     *
+     * @param g the graphics element
+     */
+    public void draw(Graphics g) {
+        Color[] colors = {palette.getColor(PAD), palette.getColor(PEAR)};
+        int[] current = {-1};
+        forEachInDrawingOrder(i -> {
+            if (colorIndex(i) != current[0]) {
+                current[0] = colorIndex(i);
+                g.setColor(colors[current[0]]);
+            }
+            g.fillOval((int) xs[i], (int) ys[i], (int) diameters[i], (int) diameters[i]);
+        });
+    }
+
+    /**
+     * Draws all circles in the buffer batched by color. Up to DRAW_BATCH circles of
+     * one color in a row are filled as one shape, so the drawing order is kept and
+     * the picture is the same as draw's. A batch ends wherever the color changes.
+     * Circles of a translucent color are filled one by one, overlapping circles of
+     * one shape would be blended once instead of once each. Larger batches make the
+     * shapes slower to fill than the circles one by one
+     *
+     * @param g the graphics element
+     */
+    public void drawBatched(Graphics2D g) {
+        if (treeLevels > 0) {
+            int[] circles = new int[size];
+            int[] next = {0};
+            forEachInDrawingOrder(i -> circles[next[0]++] = i);
+            drawBatched(g, circles, 0, size);
+            return;
+        }
+        drawBatched(g, null, 0, size);
+    }
+
+    /**
+     * Draws some circles of the buffer batched by color, see drawBatched(Graphics2D)
+     *
+     * @param g the graphics element
+     * @param circles indexes of the circles to draw, null to draw the circles from to to
+     * @param from position in circles of the first circle to draw
+     * @param to position in circles after the last circle to draw
+     */
+    void drawBatched(Graphics2D g, int[] circles, int from, int to) {
+        Color[] colors = {palette.getColor(PAD), palette.getColor(PEAR)};
+        Path2D.Float batch = new Path2D.Float(Path2D.WIND_NON_ZERO);
+        Ellipse2D.Float oval = new Ellipse2D.Float();
+        int current = -1;
+        int batched = 0;
+        for (int i = from; i < to; i++) {
+            int circle = circles == null ? i : circles[i];
+            int color = colorIndex(circle);
+            if (batched > 0 && (color != current || batched == DRAW_BATCH)) {
+                g.fill(batch);
+                batch.reset();
+                batched = 0;
+            }
+            if (color != current) {
+                current = color;
+                g.setColor(colors[color]);
+            }
+            int diameter = (int) diameters[circle];
+            if (colors[color] == null || colors[color].getAlpha() != 255) {
+                g.fillOval((int) xs[circle], (int) ys[circle], diameter, diameter);
+                continue;
+            }
+            // the same integer bounds as fillOval, which fills the same shape
+            oval.setFrame((int) xs[circle], (int) ys[circle], diameter, diameter);
+            batch.append(oval, false);
+            batched++;
+        }
+        if (batched > 0) {
+            g.fill(batch);
+        }
+    }
+
+    /**
+     * post: ensures that the underlying arrays have the given capacity; if not,
+     * the size is doubled (or more if given capacity is even larger)
+     *
+     * @param capacity current capacity of the buffer
+     */
+    public void ensureCapacity(int capacity) {
+        if (treeLevels > 0) {
+            copyIfShared();
+        }
+        if (capacity > xs.length) {
+            int newCapacity = xs.length * 2 + 1;
+            if (capacity > newCapacity) {
+                newCapacity = capacity;
+            }
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            diameters = Arrays.copyOf(diameters, newCapacity);
+            colorIndexes = Arrays.copyOf(colorIndexes, newCapacity);
+            shared = false;
+        }
+    }
+
+    /**
+     * post: gives the buffer arrays of its own if they are shared with another buffer,
+     * so a change does not show in the other one
+     */
+    private void copyIfShared() {
+        if (treeLevels > 0) {
+            // the tree is written out in drawing order into arrays of its own
+            double[] treeXs = xs;
+            double[] treeYs = ys;
+            double[] treeDiameters = diameters;
+            xs = new double[size];
+            ys = new double[size];
+            diameters = new double[size];
+            colorIndexes = new byte[size];
+            int[] next = {0};
+            forEachInDrawingOrder(i -> {
+                int circle = next[0]++;
+                xs[circle] = treeXs[i];
+                ys[circle] = treeYs[i];
+                diameters[circle] = treeDiameters[i];
+                colorIndexes[circle] = colorIndex(i);
+            });
+            treeLevels = 0;
+            shared = false;
+        } else if (shared) {
+            xs = xs.clone();
+            ys = ys.clone();
+            diameters = diameters.clone();
+            colorIndexes = colorIndexes.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Returns the palette index of a circle without checking the index, in a tree
+     * stored level by level the circles of the last level are the pears
+     *
+     * @param index index of the circle
+     * @return palette index of the circle, PAD or PEAR
+     */
+    private byte colorIndex(int index) {
+        if (treeLevels == 0) {
+            return colorIndexes[index];
+        }
+        return 32 - Integer.numberOfLeadingZeros(index + 1) == treeLevels ? PEAR : PAD;
+    }
+
+    /**
+     * post: throws an IndexOutOfBoundsException if the given index is
+     * not a legal index of the current buffer
+     *
+     * @param index index to be checked
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+}
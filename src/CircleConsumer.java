@@ -0,0 +1,18 @@
+/**
+ * Interface for classes receiving circles one at a time as they are generated
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public interface CircleConsumer {
+
+    /**
+     * Receives the next circle
+     *
+     * @param x x coordinate of the drawing window
+     * @param y y coordinate of the drawing window
+     * @param diameter diameter of the circle
+     * @param colorIndex palette index of the circle, CircleBuffer.PAD or CircleBuffer.PEAR
+     */
+    void accept(double x, double y, double diameter, byte colorIndex);
+}
@@ -0,0 +1,304 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file holding a generated fractal, so it can be reused across runs without
+ * generating it again. The file starts with a header of HEADER_BYTES holding the
+ * parameters of the fractal and the number of circles, followed by one record of
+ * OffHeapCircleStore.RECORD_BYTES per circle in the order of the generator. All
+ * values are little endian. The records are read straight from a read only mapping
+ * of the file, nothing is copied onto the heap when the file is opened
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public final class CircleFile implements AutoCloseable {
+
+    /** first four bytes of every circle file, "FRCT" */
+    public static final int MAGIC = 0x46524354;
+    /** version of the file layout */
+    public static final int VERSION = 1;
+    /** bytes of the header before the first record */
+    public static final int HEADER_BYTES = 64;
+    /** extension of circle files */
+    public static final String EXTENSION = ".circles";
+    /** number of records written to the file at once */
+    private static final int WRITE_RECORDS = 1 << 16;
+    /** color written for the pads when the generator has none, as in GUI */
+    private static final Color DEFAULT_PAD_COLOR = Color.GREEN;
+    /** color written for the pears when the generator has none, as in GUI */
+    private static final Color DEFAULT_PEAR_COLOR = Color.RED;
+
+    /** recursion depth of the fractal drawing */
+    private final int recursionDepth;
+    /** child to parent size ratio */
+    private final double childRatio;
+    /** whether the branch directions were read from the trigonometry table */
+    private final boolean trigTable;
+    /** the circles, mapped from the file */
+    private final OffHeapCircleStore circles;
+
+    /**
+     * Constructor for an opened file
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @param trigTable whether the branch directions were read from the trigonometry table
+     * @param circles the circles, mapped from the file
+     */
+    private CircleFile(int recursionDepth, double childRatio, boolean trigTable, OffHeapCircleStore circles) {
+        this.recursionDepth = recursionDepth;
+        this.childRatio = childRatio;
+        this.trigTable = trigTable;
+        this.circles = circles;
+    }
+
+    /**
+     * Names the file of a fractal, so fractals can be looked up by their parameters
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param c2pRatio child to parent ratio in percent
+     * @return name of the file within its directory
+     */
+    public static String fileName(int recursionDepth, int c2pRatio) {
+        return "fractal-" + recursionDepth + "-" + c2pRatio + EXTENSION;
+    }
+
+    /**
+     * Generates the current data of the generator into a file named by fileName in
+     * the directory, see write(GenerateFractal, Path)
+     *
+     * @param generator generator holding the data
+     * @param directory directory of the file
+     * @return path of the written file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path writeTo(GenerateFractal generator, Path directory) throws IOException {
+        int c2pRatio = (int) Math.round(generator.getChildRatio() * 100);
+        Path file = directory.resolve(fileName(generator.getRecursionDepth(), c2pRatio));
+        write(generator, file);
+        return file;
+    }
+
+    /**
+     * pre : the generator is not in level of detail mode (throws IllegalStateException
+     * if it is), the file would hold a pruned fractal under the name of the full one
+     * post: generates the current data of the generator straight into a file, a batch
+     * of records at a time. The file is written under a temporary name, forced to the
+     * disk and renamed once complete, so other processes never open a partial file,
+     * not even after a crash. Missing colors are written as the defaults of GUI
+     *
+     * @param generator generator holding the data
+     * @param file path of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GenerateFractal generator, Path file) throws IOException {
+        if (generator.getDetailFootprint() > 0) {
+            throw new IllegalStateException("level of detail output is pruned, not written: " + file);
+        }
+        Color padColor = generator.getPadColor() == null ? DEFAULT_PAD_COLOR : generator.getPadColor();
+        Color pearColor = generator.getPearColor() == null ? DEFAULT_PEAR_COLOR : generator.getPearColor();
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            RecordWriter records = new RecordWriter(channel);
+            channel.position(HEADER_BYTES);
+            try {
+                generator.forEachCircle(records);
+                records.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(generator.getRecursionDepth());
+            header.putInt(generator.isTrigTable() ? 1 : 0);
+            header.putDouble(generator.getChildRatio());
+            header.putInt(padColor.getRGB());
+            header.putInt(pearColor.getRGB());
+            header.putLong(records.count);
+            header.clear();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens a circle file and maps its records. The header is checked before anything
+     * is mapped: the magic and version, parameters a fractal can have, as many circles
+     * as the generator makes for them and as many records as the length of the file holds
+     *
+     * @param file path of the file
+     * @return the opened file, to be closed once no longer needed
+     * @throws IOException if the file cannot be read, is not a circle file or is corrupt
+     */
+    public static CircleFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("not a circle file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported circle file version " + version + ": " + file);
+            }
+            int recursionDepth = header.getInt();
+            boolean trigTable = header.getInt() != 0;
+            double childRatio = header.getDouble();
+            Color padColor = new Color(header.getInt(), true);
+            Color pearColor = new Color(header.getInt(), true);
+            long count = header.getLong();
+            if (recursionDepth < 0 || !(childRatio > 0 && childRatio < 1)) {
+                throw new IOException("corrupt circle file, depth " + recursionDepth + ", ratio " + childRatio + ": " + file);
+            }
+            long expected = GenerateFractal.predictCircleCount(recursionDepth, childRatio);
+            if (count != expected) {
+                throw new IOException("corrupt circle file, " + count + " circles instead of " + expected + ": " + file);
+            }
+            if (channel.size() != HEADER_BYTES + count * OffHeapCircleStore.RECORD_BYTES) {
+                throw new IOException("truncated circle file, " + channel.size() + " bytes for " + count + " circles: " + file);
+            }
+
+            long segmentBytes = (long) OffHeapCircleStore.SEGMENT_RECORDS * OffHeapCircleStore.RECORD_BYTES;
+            long recordBytes = count * OffHeapCircleStore.RECORD_BYTES;
+            ByteBuffer[] segments = new ByteBuffer[(int) ((recordBytes + segmentBytes - 1) / segmentBytes)];
+            for (int segment = 0; segment < segments.length; segment++) {
+                long offset = segment * segmentBytes;
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset,
+                        Math.min(segmentBytes, recordBytes - offset)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            OffHeapCircleStore circles = new OffHeapCircleStore(segments, count, padColor, pearColor);
+            return new CircleFile(recursionDepth, childRatio, trigTable, circles);
+        }
+    }
+
+    /**
+     * Retrieves the recursion depth of the fractal drawing
+     *
+     * @return how many times the recursive function was called
+     */
+    public int getRecursionDepth() {
+        return recursionDepth;
+    }
+
+    /**
+     * Retrieves the child to parent size ratio
+     *
+     * @return size of a child circle relative to its parent
+     */
+    public double getChildRatio() {
+        return childRatio;
+    }
+
+    /**
+     * Returns whether the branch directions were read from the trigonometry table
+     *
+     * @return true if the trigonometry table was used
+     */
+    public boolean isTrigTable() {
+        return trigTable;
+    }
+
+    /**
+     * Retrieves the circles of the file, with the colors they were written with
+     *
+     * @return a read only store mapped onto the records of the file
+     */
+    public OffHeapCircleStore getCircles() {
+        return circles;
+    }
+
+    /**
+     * Releases the mapping of the file, the circles cannot be used afterwards
+     */
+    @Override
+    public void close() {
+        circles.close();
+    }
+
+    /**
+     * Writes the whole buffer at a position of the file
+     *
+     * @param channel channel of the file
+     * @param bytes bytes to write
+     * @param position position in the file of the first byte
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    /**
+     * Receives the circles from the generator and writes them to the file as records
+     */
+    private static class RecordWriter implements CircleConsumer {
+
+        /** channel of the file, positioned after the records written so far */
+        private final FileChannel channel;
+        /** records not yet written to the file */
+        private final ByteBuffer batch;
+        /** number of circles received */
+        private long count;
+
+        /**
+         * Constructor for a writer appending to the channel
+         * @param channel channel of the file
+         */
+        RecordWriter(FileChannel channel) {
+            this.channel = channel;
+            batch = ByteBuffer.allocateDirect(WRITE_RECORDS * OffHeapCircleStore.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void accept(double x, double y, double diameter, byte colorIndex) {
+            batch.putFloat((float) x);
+            batch.putFloat((float) y);
+            batch.putFloat((float) diameter);
+            batch.putInt(colorIndex);
+            count++;
+            if (!batch.hasRemaining()) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Writes the records received since the last flush
+         *
+         * @throws IOException if the file cannot be written
+         */
+        void flush() throws IOException {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            batch.clear();
+        }
+    }
+}
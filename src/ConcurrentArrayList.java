@@ -0,0 +1,346 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Makes a generic list many threads can append to at once without a lock. An
+ * append reserves its index with an atomic counter and writes the element into a
+ * chunk, each chunk holding twice as many elements as the one before. A chunk is
+ * allocated by the one thread that claims its slot with a compare and set, the
+ * others needing it wait for it instead of allocating a copy to throw away, so
+ * elements already stored are never copied, and it is allocated before
+ * any index in it is reserved, so a failed allocation leaves no index unwritten.
+ * Every index below size() can be read, a read waits for an element whose index
+ * is reserved but not yet written. The order of the elements is the order their
+ * indexes were reserved in, elements cannot be null and cannot be inserted or removed
+ *
+ * @param <E> Generic type to be replaced by desired type checking parameter
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class ConcurrentArrayList<E> implements Iterable<E> {
+    /**
+     * base two logarithm of the number of elements in the first chunk
+     */
+    public static final int CHUNK_SHIFT = 10;
+    /**
+     * number of elements in the first chunk, every other chunk holds twice as many as the one before
+     */
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * largest number of elements the list can hold
+     */
+    public static final int MAX_SIZE = Integer.MAX_VALUE - CHUNK_SIZE + 1;
+    /**
+     * number of chunks holding MAX_SIZE elements
+     */
+    private static final int CHUNK_COUNT = Integer.SIZE - 1 - CHUNK_SHIFT;
+
+    /**
+     * chunks of values, chunk k holds CHUNK_SIZE &lt;&lt; k values and is null until first needed
+     */
+    private final AtomicReferenceArray<AtomicReferenceArray<E>> chunks;
+    /**
+     * empty chunk marking a slot whose chunk one thread is allocating, never read from
+     */
+    private final AtomicReferenceArray<E> allocating;
+    /**
+     * number of indexes reserved so far, the size of the list
+     */
+    private final AtomicInteger reserved;
+
+    /**
+     * Constructor, initialize ConcurrentArrayList to one chunk
+     */
+    public ConcurrentArrayList() {
+        this(CHUNK_SIZE);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty list with room for at least capacity elements
+     *
+     * @param capacity starting capacity of the ConcurrentArrayList
+     */
+    public ConcurrentArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        chunks = new AtomicReferenceArray<>(CHUNK_COUNT);
+        allocating = new AtomicReferenceArray<>(0);
+        reserved = new AtomicInteger();
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * post: returns the current number of elements in the list, including elements
+     * whose index is reserved but which are still being written
+     *
+     * @return the current number of elements in the list
+     */
+    public int size() {
+        return reserved.get();
+    }
+
+    /**
+     * returns true if list is empty, false otherwise
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the value at the given index in the list, waiting for it if its
+     * index is reserved but it is still being written
+     *
+     * @param index index of the element desired
+     * @return the requested element
+     */
+    public E get(int index) {
+        checkIndex(index);
+        AtomicReferenceArray<E> chunk = chunks.get(chunkOf(index));
+        E value = chunk.get(positionOf(index));
+        while (value == null) {
+            Thread.onSpinWait();
+            value = chunk.get(positionOf(index));
+        }
+        return value;
+    }
+
+    /**
+     * creates a comma-separated, bracketed version of the list
+     *
+     * @return a string representation of the ConcurrentArrayList
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (E value : this) {
+            if (result.length() > 1) {
+                result.append(", ");
+            }
+            result.append(value);
+        }
+        return result.append("]").toString();
+    }
+
+    /**
+     * post : returns the position of the first occurrence of the given
+     * value (-1 if not found)
+     *
+     * @param value the value to be searched
+     * @return index of the value requested, -1 if not found
+     */
+    public int indexOf(E value) {
+        int count = size();
+        for (int i = 0; i < count; i++) {
+            if (get(i).equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * post: returns true if the given value is contained in the list,
+     * false otherwise
+     *
+     * @param value value to be searched
+     * @return true if found, false otherwise
+     */
+    public boolean contains(E value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * pre : value is not null (throws NullPointerException if not) and the list
+     * holds fewer than MAX_SIZE elements (throws IllegalStateException if not)
+     * post: appends the given value to the end of the list, safe to call from
+     * many threads at once
+     *
+     * @param value element to be added
+     * @return index of the added element
+     */
+    public int add(E value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        while (true) {
+            int index = reserved.get();
+            if (index >= MAX_SIZE) {
+                throw new IllegalStateException("list is full");
+            }
+            // allocate before reserving, a reserved index is then always written
+            AtomicReferenceArray<E> chunk = chunk(chunkOf(index));
+            if (reserved.compareAndSet(index, index + 1)) {
+                chunk.set(positionOf(index), value);
+                return index;
+            }
+        }
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() and value is not null (throws
+     * IndexOutOfBoundsException or NullPointerException if not)
+     * post: replaces the value at the given index with the given value
+     *
+     * @param index index of the element to be updated
+     * @param value new value
+     */
+    public void set(int index, E value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        get(index);
+        chunks.get(chunkOf(index)).set(positionOf(index), value);
+    }
+
+    /**
+     * post: appends all values in the given list to the end of this list, the
+     * values may be interleaved with values other threads append at the same time
+     *
+     * @param other list to be appended to current list
+     */
+    public void addAll(ConcurrentArrayList<E> other) {
+        for (E value : other) {
+            add(value);
+        }
+    }
+
+    /**
+     * returns an iterator over the elements in the list when the iterator is created,
+     * the iterator does not support remove
+     *
+     * @return an iterator for this list
+     */
+    public Iterator<E> iterator() {
+        return new ConcurrentArrayListIterator(size());
+    }
+
+    /**
+     * post: ensures that the chunks have room for the given capacity, up to MAX_SIZE;
+     * if not, the missing chunks are allocated. Safe to call from many threads at
+     * once, the elements already stored are never copied
+     *
+     * @param capacity current capacity of the List
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > 0) {
+            int last = chunkOf(Math.min(capacity, MAX_SIZE) - 1);
+            for (int chunk = 0; chunk <= last; chunk++) {
+                chunk(chunk);
+            }
+        }
+    }
+
+    /**
+     * Retrieves a chunk, allocating it if no thread has yet. The thread claiming the
+     * empty slot allocates the chunk, threads racing it wait until it is stored, so
+     * the chunk is allocated once; if the allocation fails the slot is freed again
+     *
+     * @param chunk number of the chunk
+     * @return the chunk
+     */
+    private AtomicReferenceArray<E> chunk(int chunk) {
+        AtomicReferenceArray<E> values = chunks.get(chunk);
+        while (values == null || values == allocating) {
+            if (values == null && chunks.compareAndSet(chunk, null, allocating)) {
+                try {
+                    values = new AtomicReferenceArray<>(CHUNK_SIZE << chunk);
+                } catch (RuntimeException | Error e) {
+                    chunks.set(chunk, null);
+                    throw e;
+                }
+                chunks.set(chunk, values);
+                return values;
+            }
+            Thread.yield();
+            values = chunks.get(chunk);
+        }
+        return values;
+    }
+
+    /**
+     * Finds the chunk holding an index, chunk k starts at index (CHUNK_SIZE &lt;&lt; k) - CHUNK_SIZE
+     *
+     * @param index index of an element, below MAX_SIZE
+     * @return number of the chunk of the element
+     */
+    private static int chunkOf(int index) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(index + CHUNK_SIZE) - CHUNK_SHIFT;
+    }
+
+    /**
+     * Finds the position of an index within its chunk
+     *
+     * @param index index of an element, below MAX_SIZE
+     * @return position of the element in its chunk
+     */
+    private static int positionOf(int index) {
+        int shifted = index + CHUNK_SIZE;
+        return shifted - Integer.highestOneBit(shifted);
+    }
+
+    /**
+     * post: throws an IndexOutOfBoundsException if the given index is
+     * not a legal index of the current list
+     *
+     * @param index index to be checked
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Private class responsible for the functionality of an Iterator
+     */
+    private class ConcurrentArrayListIterator implements Iterator<E> {
+        /**
+         * current position within the list
+         */
+        private int position;
+        /**
+         * number of elements of the list when the iterator was created
+         */
+        private final int end;
+
+        /**
+         * post: constructs an iterator over the first end elements of the list
+         *
+         * @param end number of elements to iterate over
+         */
+        public ConcurrentArrayListIterator(int end) {
+            position = 0;
+            this.end = end;
+        }
+
+        /**
+         * post: returns true if there are more elements left, false otherwise
+         *
+         * @return true if there are more elements left, false otherwise
+         */
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        /**
+         * pre : hasNext() (throws NoSuchElementException if not)
+         * post: returns the next element in the iteration
+         *
+         * @return the next element in iteration
+         */
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E result = get(position);
+            position++;
+            return result;
+        }
+    }
+}
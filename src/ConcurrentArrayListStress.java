@@ -0,0 +1,152 @@
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress check of ConcurrentArrayList. Many writer threads append to one list
+ * starting from capacity 0 while reader threads read random indexes below the
+ * size, then the list is checked to hold every value exactly once, each writer's
+ * values in the order it appended them, and the indexes returned to each writer
+ * increasing. Throws IllegalStateException on the first failure
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class ConcurrentArrayListStress {
+
+    /** default number of threads appending at once */
+    private static final int WRITERS = 32;
+    /** default number of values appended by each writer */
+    private static final int APPENDS = 100_000;
+    /** number of threads reading while the writers append */
+    private static final int READERS = 4;
+    /** default number of times the check is run */
+    private static final int ROUNDS = 10;
+
+    /**
+     * Application main method
+     * @param args optional number of writers, appends per writer and rounds
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : WRITERS;
+        int appends = args.length > 1 ? Integer.parseInt(args[1]) : APPENDS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : ROUNDS;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            long reads = runRound(writers, appends);
+            System.out.printf("round %d: %d appends by %d threads in %d ms, %d concurrent reads, all present once in order%n",
+                    round, (long) writers * appends, writers, (System.nanoTime() - start) / 1000000, reads);
+        }
+    }
+
+    /**
+     * Appends from many threads at once while reading, then checks the list
+     *
+     * @param writers number of threads appending at once
+     * @param appends number of values appended by each writer
+     * @return number of reads made while appending
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static long runRound(int writers, int appends) throws InterruptedException {
+        ConcurrentArrayList<Integer> list = new ConcurrentArrayList<>(0);
+        int total = Math.multiplyExact(writers, appends);
+        CyclicBarrier start = new CyclicBarrier(writers + READERS);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[writers + READERS];
+        for (int writer = 0; writer < writers; writer++) {
+            int first = writer * appends;
+            threads[writer] = new Thread(() -> {
+                await(start);
+                int last = -1;
+                for (int i = 0; i < appends; i++) {
+                    int index = list.add(first + i);
+                    if (index <= last) {
+                        failure.compareAndSet(null, "index " + index + " returned after " + last);
+                    }
+                    last = index;
+                    if (list.get(index) != first + i) {
+                        failure.compareAndSet(null, "value " + (first + i) + " not read back at " + index);
+                    }
+                }
+            });
+        }
+        for (int reader = 0; reader < READERS; reader++) {
+            threads[writers + reader] = new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get()) {
+                    int size = list.size();
+                    if (size == 0) {
+                        continue;
+                    }
+                    Integer value = list.get(random.nextInt(size));
+                    if (value < 0 || value >= total) {
+                        failure.compareAndSet(null, "read " + value);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int writer = 0; writer < writers; writer++) {
+            threads[writer].join();
+        }
+        done.set(true);
+        for (int reader = 0; reader < READERS; reader++) {
+            threads[writers + reader].join();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(failure.get());
+        }
+        check(list, writers, appends);
+        return reads.get();
+    }
+
+    /**
+     * Checks that the list holds every value once and each writer's values in order
+     *
+     * @param list the appended list
+     * @param writers number of threads that appended
+     * @param appends number of values appended by each writer
+     */
+    private static void check(ConcurrentArrayList<Integer> list, int writers, int appends) {
+        if (list.size() != writers * appends) {
+            throw new IllegalStateException("size " + list.size() + ", expected " + writers * appends);
+        }
+        boolean[] seen = new boolean[writers * appends];
+        int[] lastOf = new int[writers];
+        Arrays.fill(lastOf, -1);
+        for (int value : list) {
+            if (seen[value]) {
+                throw new IllegalStateException("duplicate " + value);
+            }
+            seen[value] = true;
+            int writer = value / appends;
+            if (value % appends <= lastOf[writer]) {
+                throw new IllegalStateException("values of writer " + writer + " out of order at " + value);
+            }
+            lastOf[writer] = value % appends;
+        }
+    }
+
+    /**
+     * Waits for every thread of the round to be ready
+     *
+     * @param start barrier the threads meet at
+     */
+    private static void await(CyclicBarrier start) {
+        try {
+            start.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
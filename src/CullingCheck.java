@@ -0,0 +1,90 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Checks that viewport culling is lossless. For random depths, ratios, viewports
+ * and zooms the whole fractal and the fractal culled to the viewport are drawn
+ * through the viewport, both with Graphics and the way Display draws a zoomed view,
+ * and the images must be identical. Throws IllegalStateException on the first
+ * differing pixel
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class CullingCheck {
+
+    /** default number of random cases checked */
+    private static final int CASES = 60;
+
+    /**
+     * Application main method
+     * @param args optional number of cases and random seed
+     */
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : CASES;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        TiledRasterizer rasterizer = new TiledRasterizer();
+        long kept = 0;
+        long total = 0;
+        for (int i = 0; i < cases; i++) {
+            int depth = 4 + random.nextInt(14);
+            int ratio = 40 + random.nextInt(46);
+            GenerateFractal generator = new GenerateFractal();
+            generator.setData(depth, ratio, Color.GREEN, Color.RED);
+            Rectangle2D viewport = new Rectangle2D.Double(random.nextInt(900) - 50, random.nextInt(800) - 50,
+                    20 + random.nextInt(300), 20 + random.nextInt(300));
+            double zoom = 1 + random.nextInt(6);
+            int width = (int) (viewport.getWidth() * zoom);
+            int height = (int) (viewport.getHeight() * zoom);
+            CircleBuffer all = generator.getBuffer();
+            CircleBuffer culled = generator.getBuffer(viewport);
+            String name = "depth " + depth + ", ratio " + ratio + ", viewport " + viewport.getBounds() + ", zoom " + zoom;
+            compare(draw(all, viewport, zoom), draw(culled, viewport, zoom), name + ", Graphics");
+            compare(rasterizer.rasterize(all.transform(zoom, viewport.getX(), viewport.getY(), width, height), width, height),
+                    rasterizer.rasterize(culled.transform(zoom, viewport.getX(), viewport.getY(), width, height), width, height),
+                    name + ", Display");
+            kept += culled.size();
+            total += all.size();
+        }
+        System.out.printf("%d cases identical inside the viewport, culling kept %d of %d circles%n", cases, kept, total);
+    }
+
+    /**
+     * Draws the circles through a viewport with Graphics
+     *
+     * @param circles the circles to draw
+     * @param viewport visible rectangle in the coordinates of the drawing
+     * @param zoom pixels per unit of the drawing
+     * @return the drawn image
+     */
+    private static BufferedImage draw(CircleBuffer circles, Rectangle2D viewport, double zoom) {
+        BufferedImage image = new BufferedImage((int) (viewport.getWidth() * zoom), (int) (viewport.getHeight() * zoom),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.scale(zoom, zoom);
+        g.translate(-viewport.getX(), -viewport.getY());
+        circles.draw(g);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Compares two images pixel by pixel
+     *
+     * @param expected image of the whole fractal
+     * @param actual image of the culled fractal
+     * @param name description of the case
+     */
+    private static void compare(BufferedImage expected, BufferedImage actual, String name) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    throw new IllegalStateException(name + ": pixel (" + x + ", " + y + ") differs");
+                }
+            }
+        }
+    }
+}
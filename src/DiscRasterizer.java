@@ -0,0 +1,181 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Fills discs directly into the int pixels of an image, without going through
+ * Graphics. The first and last pixel of every row of the discs up to TABLE_DIAMETER
+ * are taken once from Graphics.fillOval at (0, 0), larger discs fill the pixels whose
+ * center lies inside them. fillOval rounds slightly differently depending on where
+ * the disc is, so a disc drawn elsewhere can differ from it by a pixel or two at the
+ * ends of a few rows. DiscRasterizerBenchmark measures it against fillOval: at
+ * ratio 85 and depths 10 to 20 it is 6 to 19 times faster and up to 2 pixels of
+ * the 900 by 800 image differ, so Display draws with fillOval and this stays an
+ * option of TiledRasterizer. Filling a disc allocates nothing. The color replaces
+ * the pixels, it is not blended with them
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class DiscRasterizer {
+
+    /** largest diameter whose rows are looked up in the table */
+    public static final int TABLE_DIAMETER = 320;
+
+    /** first pixel of every row of every disc up to TABLE_DIAMETER, relative to its left edge */
+    private static final int[][] ROW_START = new int[TABLE_DIAMETER + 1][];
+    /** last pixel of every row of every disc up to TABLE_DIAMETER, relative to its left edge */
+    private static final int[][] ROW_END = new int[TABLE_DIAMETER + 1][];
+
+    static {
+        BufferedImage scratch = new BufferedImage(TABLE_DIAMETER, TABLE_DIAMETER, BufferedImage.TYPE_INT_ARGB);
+        int[] scratchPixels = pixelsOf(scratch);
+        Graphics2D g = scratch.createGraphics();
+        g.setColor(Color.BLACK);
+        for (int diameter = 0; diameter <= TABLE_DIAMETER; diameter++) {
+            Arrays.fill(scratchPixels, 0);
+            g.fillOval(0, 0, diameter, diameter);
+            ROW_START[diameter] = new int[diameter];
+            ROW_END[diameter] = new int[diameter];
+            for (int row = 0; row < diameter; row++) {
+                int offset = row * TABLE_DIAMETER;
+                int start = 0;
+                while (start < diameter && scratchPixels[offset + start] == 0) {
+                    start++;
+                }
+                int end = diameter - 1;
+                while (end >= start && scratchPixels[offset + end] == 0) {
+                    end--;
+                }
+                ROW_START[diameter][row] = start;
+                ROW_END[diameter][row] = end;
+            }
+        }
+        g.dispose();
+    }
+
+    /** pixels of the image, row by row */
+    private final int[] pixels;
+    /** width of the image */
+    private final int width;
+    /** height of the image */
+    private final int height;
+
+    /**
+     * Constructor for a rasterizer drawing into the pixels of an image
+     *
+     * @param pixels pixels of the image, row by row
+     * @param width width of the image
+     * @param height height of the image
+     */
+    public DiscRasterizer(int[] pixels, int width, int height) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("pixels: " + pixels.length + " for " + width + "x" + height);
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * pre : image is of TYPE_INT_ARGB or TYPE_INT_RGB (throws IllegalArgumentException if not)
+     * post: constructs a rasterizer drawing into the pixels backing the image
+     *
+     * @param image the image to draw into
+     */
+    public DiscRasterizer(BufferedImage image) {
+        this(pixelsOf(image), image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Fills a disc given by its bounding box, like Graphics.fillOval
+     *
+     * @param x x coordinate of the left edge
+     * @param y y coordinate of the top edge
+     * @param diameter diameter of the disc
+     * @param argb color of the disc
+     */
+    public void fillDisc(int x, int y, int diameter, int argb) {
+        fillDisc(x, y, diameter, argb, 0, 0, width, height);
+    }
+
+    /**
+     * Fills the part of a disc lying inside the clip rectangle
+     *
+     * @param x x coordinate of the left edge
+     * @param y y coordinate of the top edge
+     * @param diameter diameter of the disc
+     * @param argb color of the disc
+     * @param clipX left edge of the clip rectangle
+     * @param clipY top edge of the clip rectangle
+     * @param clipWidth width of the clip rectangle
+     * @param clipHeight height of the clip rectangle
+     */
+    public void fillDisc(int x, int y, int diameter, int argb, int clipX, int clipY, int clipWidth, int clipHeight) {
+        int left = Math.max(0, clipX);
+        int right = Math.min(width, clipX + clipWidth) - 1;
+        int firstRow = Math.max(Math.max(0, clipY), y);
+        int lastRow = (int) Math.min(Math.min(height, clipY + clipHeight) - 1, (long) y + diameter - 1);
+        boolean table = diameter <= TABLE_DIAMETER;
+        for (int row = firstRow; row <= lastRow; row++) {
+            int start;
+            int end;
+            if (table) {
+                start = ROW_START[diameter][row - y];
+                end = ROW_END[diameter][row - y];
+            } else {
+                start = rowStart(diameter, (long) row - y);
+                end = diameter - 1 - start;
+            }
+            int from = (int) Math.max(left, (long) x + start);
+            int to = (int) Math.min(right, (long) x + end);
+            if (from <= to) {
+                int offset = row * width;
+                Arrays.fill(pixels, offset + from, offset + to + 1, argb);
+            }
+        }
+    }
+
+    /**
+     * Fills every circle of the buffer in order
+     *
+     * @param circles the circles to draw
+     */
+    public void fill(CircleBuffer circles) {
+        int[] argbs = circles.getPalette().toRGBArray();
+        circles.forEachInDrawingOrder(i -> {
+            int diameter = (int) circles.getDiameter(i);
+            fillDisc((int) circles.getX(i), (int) circles.getY(i), diameter, argbs[circles.getColorIndex(i)]);
+        });
+    }
+
+    /**
+     * Computes the first pixel of a row of a disc whose center lies inside the disc
+     *
+     * @param diameter diameter of the disc
+     * @param row row of the disc, 0 being the top
+     * @return first pixel of the row relative to the left edge, past the middle if the row is empty
+     */
+    private static int rowStart(int diameter, long row) {
+        double radius = diameter / 2.0;
+        double dy = row + 0.5 - radius;
+        double halfWidth = Math.sqrt(Math.max(0, radius * radius - dy * dy));
+        return (int) Math.ceil(radius - halfWidth - 0.5);
+    }
+
+    /**
+     * pre : image is of TYPE_INT_ARGB or TYPE_INT_RGB (throws IllegalArgumentException if not)
+     * post: returns the pixels backing the image
+     *
+     * @param image the image to draw into
+     * @return the pixels of the image, row by row
+     */
+    private static int[] pixelsOf(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB && image.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("image type: " + image.getType());
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
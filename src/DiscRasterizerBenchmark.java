@@ -0,0 +1,71 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the DiscRasterizer with Graphics.fillOval. The fractals of depths 10 to
+ * 20 at one ratio are drawn into a 900 by 800 image both ways, timing the best of
+ * several runs, and the pixels that differ between the two images are counted.
+ * The DiscRasterizer is not exact, so the differences are reported, not thrown
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class DiscRasterizerBenchmark {
+
+    /** default child to parent ratio of the fractals */
+    private static final int RATIO = 85;
+    /** smallest recursion depth compared */
+    private static final int MIN_DEPTH = 10;
+    /** largest recursion depth compared */
+    private static final int MAX_DEPTH = 20;
+    /** width of the image, as in Display */
+    private static final int WIDTH = 900;
+    /** height of the image, as in Display */
+    private static final int HEIGHT = 800;
+    /** untimed runs before timing */
+    private static final int WARMUP = 2;
+    /** timed runs, the best one is kept */
+    private static final int RUNS = 5;
+
+    /**
+     * Application main method
+     * @param args optional child to parent ratio in percent
+     */
+    public static void main(String[] args) {
+        int ratio = args.length > 0 ? Integer.parseInt(args[0]) : RATIO;
+        for (int depth = MIN_DEPTH; depth <= MAX_DEPTH; depth++) {
+            GenerateFractal generator = new GenerateFractal();
+            generator.setData(depth, ratio, Color.GREEN, Color.RED);
+            CircleBuffer circles = generator.getBuffer();
+            BufferedImage ovals = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            BufferedImage discs = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            long ovalNanos = Long.MAX_VALUE;
+            long discNanos = Long.MAX_VALUE;
+            for (int run = 0; run < WARMUP + RUNS; run++) {
+                long start = System.nanoTime();
+                Graphics2D g = ovals.createGraphics();
+                circles.draw(g);
+                g.dispose();
+                long middle = System.nanoTime();
+                new DiscRasterizer(discs).fill(circles);
+                long end = System.nanoTime();
+                if (run >= WARMUP) {
+                    ovalNanos = Math.min(ovalNanos, middle - start);
+                    discNanos = Math.min(discNanos, end - middle);
+                }
+            }
+            long differing = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if (ovals.getRGB(x, y) != discs.getRGB(x, y)) {
+                        differing++;
+                    }
+                }
+            }
+            System.out.printf("depth %d, ratio %d, %d circles: fillOval %.1f ms, DiscRasterizer %.1f ms, %.2fx faster, %d of %d pixels differ%n",
+                    depth, ratio, circles.size(), ovalNanos / 1e6, discNanos / 1e6, ovalNanos / (double) discNanos,
+                    differing, (long) WIDTH * HEIGHT);
+        }
+    }
+}
@@ -1,19 +1,16 @@
-import javax.swing.JPanel;
 import javax.swing.JFrame;
-import java.awt.Graphics;
 
 /**
  * Displays the drawing based on data produced by GenerateFractal
+ * The drawing, zooming and panning are done by a DisplayPanel filling the window
  *
  * @author stevenwang
  * @version 2020-08-16
  */
 public class Display extends JFrame implements Observer {
 
-    /** subject that produces data about the shapes */
-    private Subject subject;
-    /** holds the data */
-    private ArrayList<Circle> data;
+    /** panel drawing the data, reused for every update */
+    private final DisplayPanel panel;
     /** required field to suppress Xlint warning */
     private static final long serialVersionUID = 1;
 
@@ -24,11 +21,12 @@ public class Display extends JFrame implements Observer {
      * @param subject subject that produces data about the shapes to be drawn
      */
     public Display(Subject subject) {
-        this.subject = subject;
-        this.subject.attach(this);
+        subject.attach(this);
         setLocation(400, 0);
         setSize(900, 800);
         setTitle("Drawing");
+        panel = new DisplayPanel(subject);
+        getContentPane().add(panel);
     }
 
     /**
@@ -36,33 +34,25 @@ public class Display extends JFrame implements Observer {
      */
     @Override
     public void update() {
-        data = subject.getData();
-        JPanel panel = new GPanel();
-        getContentPane().add(panel);
-        panel.setLayout(null);
-        repaint();
+        panel.update();
         setVisible(true);
     }
 
     /**
-     * Inner class to draw the shapes from data
+     * Retrieves how long the last rasterization of the data into the offscreen image took
+     *
+     * @return duration in nanoseconds
      */
-    private class GPanel extends JPanel {
-
-        /** required field to suppress Xlint warning */
-        private static final long serialVersionUID = 1;
+    public long getLastRasterizeNanos() {
+        return panel.getLastRasterizeNanos();
+    }
 
-        /**
-         * Display all shapes from provided data
-         *
-         * @param g the Graphics object
-         */
-        @Override
-        public void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            for (Circle current : data) {
-                current.draw(g);
-            }
-        }
+    /**
+     * Retrieves how long the last repaint took, not counting the rasterization
+     *
+     * @return duration in nanoseconds
+     */
+    public long getLastRepaintNanos() {
+        return panel.getLastRepaintNanos();
     }
 }
@@ -0,0 +1,395 @@
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Panel drawing the data produced by a subject, shown by Display. The mouse wheel
+ * zooms around the cursor, dragging pans and a double click goes back to the whole
+ * drawing. A click selects the branch of the circle under the cursor, which is
+ * highlighted over the drawing until a click beside the fractal or new data. A zoomed view is first drawn from a shallow fractal and refined to the
+ * full depth in the background once the view stops moving. The panel needs no frame, so it can be updated and
+ * painted into an offscreen image without a screen
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class DisplayPanel extends JPanel implements Observer {
+
+    /** recursion depth of the quick first pass of a zoomed view */
+    private static final int COARSE_DEPTH = 8;
+    /** zoom factor of one notch of the mouse wheel */
+    private static final double ZOOM_STEP = 1.25;
+    /** milliseconds the view must stay still before it is refined */
+    private static final int REFINE_DELAY = 150;
+    /** color the pads of the selected branch are highlighted in */
+    private static final Color SELECTED_PAD = Color.YELLOW;
+    /** color the pears of the selected branch are highlighted in */
+    private static final Color SELECTED_PEAR = Color.WHITE;
+    /** opacity of the highlight over the drawing */
+    private static final float SELECTION_ALPHA = 0.6f;
+
+    /** subject that produces data about the shapes */
+    private Subject subject;
+    /** whether the subject has produced data yet */
+    private boolean hasData;
+    /** draws the data into the offscreen image */
+    private final TiledRasterizer rasterizer;
+    /** background thread refining zoomed views to the full depth */
+    private final ExecutorService refiner;
+    /** starts the refinement once the view has stayed still, restarted by every move */
+    private final Timer refineTimer;
+    /** refinement of the current view, may still be running */
+    private Future<?> refinement;
+    /** number of views drawn so far, identifies the current one */
+    private long viewCount;
+    /** zoom factor of the view, 1 shows the drawing at its own size */
+    private double zoom;
+    /** x coordinate of the drawing shown at the left edge of the view */
+    private double originX;
+    /** y coordinate of the drawing shown at the top edge of the view */
+    private double originY;
+    /** offscreen image holding the drawn data, null when it must be drawn again */
+    private BufferedImage image;
+    /** circles of the selected branch in the coordinates of the drawing, null when none is selected */
+    private CircleBuffer selection;
+    /** offscreen image holding the highlighted branch, null when it must be drawn again */
+    private BufferedImage selectionImage;
+    /** image the coarse passes of zoomed views are drawn into, reused while the size stays */
+    private BufferedImage coarseImage;
+    /** duration of the last rasterization in nanoseconds */
+    private volatile long rasterizeNanos;
+    /** duration of the last repaint without the rasterization in nanoseconds */
+    private volatile long repaintNanos;
+    /** required field to suppress Xlint warning */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * Constructor for the panel, awaiting data. The panel does not attach itself to
+     * the subject, whoever shows it passes the updates on
+     *
+     * @param subject subject that produces data about the shapes to be drawn
+     */
+    public DisplayPanel(Subject subject) {
+        this.subject = subject;
+        zoom = 1;
+        rasterizer = new TiledRasterizer();
+        refiner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "display-refiner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refineTimer = new Timer(REFINE_DELAY, e -> refineView());
+        refineTimer.setRepeats(false);
+        setLayout(null);
+        setToolTipText("");
+        ViewListener listener = new ViewListener();
+        addMouseListener(listener);
+        addMouseMotionListener(listener);
+        addMouseWheelListener(listener);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                invalidateImage();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update() {
+        hasData = true;
+        selection = null;
+        invalidateImage();
+        repaint();
+    }
+
+    /**
+     * Retrieves how long the last rasterization of the data into the offscreen image took
+     *
+     * @return duration in nanoseconds
+     */
+    public long getLastRasterizeNanos() {
+        return rasterizeNanos;
+    }
+
+    /**
+     * Retrieves how long the last repaint took, not counting the rasterization
+     *
+     * @return duration in nanoseconds
+     */
+    public long getLastRepaintNanos() {
+        return repaintNanos;
+    }
+
+    /**
+     * Draws the current view into an offscreen image. The whole drawing comes
+     * straight from the subject, from its off-heap store when it keeps one so the
+     * circles are never all copied onto the heap. A zoomed view is drawn from a
+     * shallow fractal at once, into an image reused from one view to the next, and
+     * refined to the full depth once the view stays still, replacing any older refinement
+     *
+     * @param width width of the image
+     * @param height height of the image
+     * @return the image of the view, possibly coarse
+     */
+    private BufferedImage drawView(int width, int height) {
+        ++viewCount;
+        refineTimer.stop();
+        if (refinement != null) {
+            refinement.cancel(true);
+            refinement = null;
+        }
+        if (zoom == 1 && originX == 0 && originY == 0) {
+            OffHeapCircleStore store = subject.getOffHeapCircles();
+            if (store == null) {
+                return rasterizer.rasterize(subject.getBuffer(), width, height);
+            }
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            rasterizer.rasterize(store, image);
+            return image;
+        }
+        if (coarseImage == null || coarseImage.getWidth() != width || coarseImage.getHeight() != height) {
+            coarseImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            Arrays.fill(((DataBufferInt) coarseImage.getRaster().getDataBuffer()).getData(), 0);
+        }
+        Rectangle2D viewport = new Rectangle2D.Double(originX, originY, width / zoom, height / zoom);
+        rasterizer.rasterize(subject.getBuffer(viewport, COARSE_DEPTH).transform(zoom, originX, originY, width, height), coarseImage);
+        refineTimer.restart();
+        return coarseImage;
+    }
+
+    /**
+     * Starts drawing the current zoomed view at the full depth in the background.
+     * The data is taken from the subject here, on the event dispatch thread, so the
+     * refinement reads the data the view was drawn from even if newer data is being
+     * set meanwhile. The refined image replaces the coarse one unless the view changed
+     */
+    private void refineView() {
+        long view = viewCount;
+        int width = getWidth();
+        int height = getHeight();
+        double scale = zoom;
+        double x = originX;
+        double y = originY;
+        Rectangle2D viewport = new Rectangle2D.Double(x, y, width / scale, height / scale);
+        ViewSource source = subject.getViewSource();
+        refinement = refiner.submit(() -> {
+            CircleBuffer circles = source.getBuffer(viewport, Integer.MAX_VALUE);
+            BufferedImage refined = rasterizer.rasterize(circles.transform(scale, x, y, width, height), width, height);
+            if (Thread.interrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (view == viewCount) {
+                    image = refined;
+                    repaint();
+                }
+            });
+        });
+    }
+
+    /**
+     * Discards the offscreen image so the next repaint draws the data again
+     */
+    private void invalidateImage() {
+        image = null;
+        selectionImage = null;
+    }
+
+    /**
+     * Selects the branch of the circle at a point, the circle and every circle
+     * branching off it, or clears the selection if no circle is there. Only subjects
+     * keeping their circles on the heap have the index needed to find the circle
+     *
+     * @param x x coordinate of the point in the drawing
+     * @param y y coordinate of the point in the drawing
+     */
+    private void select(double x, double y) {
+        selection = null;
+        selectionImage = null;
+        SpatialIndex index = hasData ? subject.getSpatialIndex() : null;
+        int circle = index == null ? -1 : index.circleAt(x, y);
+        if (circle >= 0) {
+            CircleBuffer circles = index.getCircles();
+            CircleBuffer branch = new CircleBuffer(circles.subtreeSize(circle), SELECTED_PAD, SELECTED_PEAR);
+            circles.forEachInSubtree(circle, i -> branch.add(circles.getX(i), circles.getY(i), circles.getDiameter(i), circles.getColorIndex(i)));
+            selection = branch;
+        }
+        repaint();
+    }
+
+    /**
+     * Display all shapes from provided data, the shapes are drawn once into an
+     * offscreen image which is copied to the screen on every repaint
+     *
+     * @param g the Graphics object
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        super.paintComponent(g);
+        if (!hasData || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        if (image == null || image.getWidth() != getWidth() || image.getHeight() != getHeight()) {
+            long rasterizeStart = System.nanoTime();
+            image = drawView(getWidth(), getHeight());
+            rasterizeNanos = System.nanoTime() - rasterizeStart;
+            start += rasterizeNanos;
+        }
+        g.drawImage(image, 0, 0, null);
+        if (selection != null) {
+            if (selectionImage == null || selectionImage.getWidth() != getWidth() || selectionImage.getHeight() != getHeight()) {
+                selectionImage = rasterizer.rasterize(selection.transform(zoom, originX, originY, getWidth(), getHeight()), getWidth(), getHeight());
+            }
+            Graphics2D highlight = (Graphics2D) g.create();
+            highlight.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, SELECTION_ALPHA));
+            highlight.drawImage(selectionImage, 0, 0, null);
+            highlight.dispose();
+        }
+        repaintNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Describes the circle under the mouse
+     *
+     * @param e the mouse position
+     * @return the kind and size of the circle, null if there is none
+     */
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        if (!hasData) {
+            return null;
+        }
+        SpatialIndex index = subject.getSpatialIndex();
+        if (index == null) {
+            return describeOffHeap(originX + e.getX() / zoom, originY + e.getY() / zoom);
+        }
+        int circle = index.circleAt(originX + e.getX() / zoom, originY + e.getY() / zoom);
+        if (circle < 0) {
+            return null;
+        }
+        CircleBuffer circles = index.getCircles();
+        String kind = circles.getColorIndex(circle) == CircleBuffer.PAD ? "Pad" : "Pear";
+        return String.format("%s %d of %d, diameter %.1f", kind, circles.drawRank(circle) + 1, circles.size(), circles.getDiameter(circle));
+    }
+
+    /**
+     * Describes the circle at a point of a subject keeping its circles off the heap,
+     * reading only the circles whose subtrees can reach the point instead of indexing
+     * them all
+     *
+     * @param x x coordinate of the point in the drawing
+     * @param y y coordinate of the point in the drawing
+     * @return the kind and size of the circle, null if there is none
+     */
+    private String describeOffHeap(double x, double y) {
+        CircleBuffer circles = subject.getBuffer(new Rectangle2D.Double(x, y, 0, 0), Integer.MAX_VALUE);
+        for (int circle = circles.size() - 1; circle >= 0; circle--) {
+            double radius = circles.getDiameter(circle) / 2;
+            double dx = x - circles.getX(circle) - radius;
+            double dy = y - circles.getY(circle) - radius;
+            if (dx * dx + dy * dy <= radius * radius) {
+                String kind = circles.getColorIndex(circle) == CircleBuffer.PAD ? "Pad" : "Pear";
+                return String.format("%s, diameter %.1f", kind, circles.getDiameter(circle));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inner class zooming and panning the view with the mouse
+     */
+    private class ViewListener extends MouseAdapter {
+
+        /** x coordinate of the mouse when it was last pressed or dragged */
+        private int lastX;
+        /** y coordinate of the mouse when it was last pressed or dragged */
+        private int lastY;
+
+        /**
+         * Remembers where a drag starts
+         *
+         * @param e the mouse press
+         */
+        @Override
+        public void mousePressed(MouseEvent e) {
+            lastX = e.getX();
+            lastY = e.getY();
+        }
+
+        /**
+         * Pans the view along with the mouse
+         *
+         * @param e the mouse drag
+         */
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            originX -= (e.getX() - lastX) / zoom;
+            originY -= (e.getY() - lastY) / zoom;
+            lastX = e.getX();
+            lastY = e.getY();
+            changeView();
+        }
+
+        /**
+         * Selects the branch under the mouse on a click and goes back to the whole
+         * drawing on a double click
+         *
+         * @param e the mouse click
+         */
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            if (e.getClickCount() == 1) {
+                select(originX + e.getX() / zoom, originY + e.getY() / zoom);
+            } else if (e.getClickCount() == 2) {
+                zoom = 1;
+                originX = 0;
+                originY = 0;
+                changeView();
+            }
+        }
+
+        /**
+         * Zooms in or out keeping the point under the cursor in place
+         *
+         * @param e the mouse wheel rotation
+         */
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            double pointX = originX + e.getX() / zoom;
+            double pointY = originY + e.getY() / zoom;
+            zoom *= Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+            originX = pointX - e.getX() / zoom;
+            originY = pointY - e.getY() / zoom;
+            changeView();
+        }
+
+        /**
+         * Draws the view again after it moved
+         */
+        private void changeView() {
+            invalidateImage();
+            repaint();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * Stress check of repeated updates of the display. The data of a generator is
+ * changed through the depths and ratios of the GUI and a DisplayPanel is updated
+ * and painted into an offscreen image after every change, without a screen. The
+ * heap in use after a collection and the repaint time, checked per block of
+ * updates, must stay flat from the first block to the last. Throws
+ * IllegalStateException if either grows
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class DisplayStress {
+
+    /** default number of updates */
+    private static final int UPDATES = 10_000;
+    /** number of updates per block whose heap and repaint times are compared */
+    private static final int BLOCK = 1000;
+    /** width of the panel, as in Display */
+    private static final int WIDTH = 900;
+    /** height of the panel, as in Display */
+    private static final int HEIGHT = 800;
+    /** largest growth of the heap in use allowed from the first block to any later one */
+    private static final long HEAP_GROWTH_LIMIT = 32L << 20;
+    /** largest factor allowed between the median repaint time of a block and of the first block */
+    private static final double REPAINT_GROWTH_LIMIT = 4;
+    /** repaint time under which a block is never counted as slower, covers timer noise */
+    private static final long REPAINT_FLOOR_NANOS = 2_000_000;
+
+    /**
+     * Application main method
+     * @param args optional number of updates
+     * @throws InterruptedException if interrupted while waiting for the event dispatch thread
+     * @throws InvocationTargetException if an update or paint fails
+     */
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException {
+        System.setProperty("java.awt.headless", "true");
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : UPDATES;
+        GenerateFractal generator = new GenerateFractal();
+        generator.setIncremental(true);
+        DisplayPanel[] panel = new DisplayPanel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            panel[0] = new DisplayPanel(generator);
+            panel[0].setSize(WIDTH, HEIGHT);
+        });
+        generator.attach(panel[0]);
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = screen.createGraphics();
+
+        long firstHeap = 0;
+        long firstRepaint = 0;
+        long[] repaints = new long[BLOCK];
+        long[] rasterizes = new long[BLOCK];
+        for (int update = 0; update < updates; update++) {
+            // walk the spinner and slider of the GUI back and forth
+            int depth = 2 + update % 9;
+            int ratio = 40 + (update / 9) % 31;
+            int slot = update % BLOCK;
+            SwingUtilities.invokeAndWait(() -> {
+                generator.setData(depth, ratio, Color.GREEN, Color.RED);
+                panel[0].paint(g);
+                repaints[slot] = panel[0].getLastRepaintNanos();
+                rasterizes[slot] = panel[0].getLastRasterizeNanos();
+            });
+            if (slot < BLOCK - 1 && update < updates - 1) {
+                continue;
+            }
+            long heap = usedHeap();
+            long repaint = median(repaints, slot + 1);
+            if (update < BLOCK) {
+                firstHeap = heap;
+                firstRepaint = repaint;
+            }
+            System.out.printf("updates %d: heap %d KB, median repaint %d us, median rasterize %d us%n",
+                    update + 1, heap >> 10, repaint / 1000, median(rasterizes, slot + 1) / 1000);
+            if (heap - firstHeap > HEAP_GROWTH_LIMIT) {
+                throw new IllegalStateException("heap grew from " + firstHeap + " to " + heap + " bytes after " + (update + 1) + " updates");
+            }
+            if (repaint > Math.max(REPAINT_FLOOR_NANOS, firstRepaint * REPAINT_GROWTH_LIMIT)) {
+                throw new IllegalStateException("repaint grew from " + firstRepaint + " to " + repaint + " ns after " + (update + 1) + " updates");
+            }
+        }
+        g.dispose();
+        System.out.println(updates + " updates painted, heap and repaint time flat");
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection
+     *
+     * @return bytes of the heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns the median of the first values of an array
+     *
+     * @param values the values, reordered
+     * @param count number of values to use
+     * @return the median value
+     */
+    private static long median(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+        return values[count / 2];
+    }
+}
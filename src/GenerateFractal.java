@@ -1,4 +1,16 @@
+import javax.swing.SwingUtilities;
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Object responsible for generating an ArrayList of circles to be drawn
@@ -9,6 +21,42 @@ import java.awt.Color;
  */
 public class GenerateFractal implements Subject {
 
+    /** width of the drawing the coordinates are laid out for */
+    public static final int DRAWING_WIDTH = 900;
+    /** height of the drawing the coordinates are laid out for */
+    public static final int DRAWING_HEIGHT = 800;
+    /** starting capacity of the explicit stack used by the generator, grows as needed */
+    private static final int STACK_CAPACITY = 64;
+    /** number of circles generated between two checks for cancellation */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+    /** subtrees with fewer levels than this are generated sequentially by a single task */
+    private static final int PARALLEL_THRESHOLD = 12;
+    /** angle of the first circle, pointing up */
+    private static final double START_ANGLE = 3 * Math.PI / 2;
+    /** angle of the first circle as a multiple of 45 degrees */
+    private static final int START_OCTANT = 6;
+    /** cosine of each multiple of 45 degrees, indexed by octant */
+    private static final double[] UNIT_X = new double[8];
+    /** sine of each multiple of 45 degrees, indexed by octant */
+    private static final double[] UNIT_Y = new double[8];
+    /** radius of the first circle */
+    private static final double START_RADIUS = 140.0;
+    /** x coordinate of the first circle */
+    private static final double START_X = 450.0;
+    /** y coordinate of the first circle */
+    private static final double START_Y = 600.0;
+    /** extra distance kept around a viewport when culling, covers the rounding of fillOval */
+    private static final double CULL_MARGIN = 2;
+    /** circles with a radius up to this one are pears */
+    private static final double PEAR_RADIUS = 2;
+
+    static {
+        for (int octant = 0; octant < 8; octant++) {
+            UNIT_X[octant] = Math.cos(octant * Math.PI / 4);
+            UNIT_Y[octant] = Math.sin(octant * Math.PI / 4);
+        }
+    }
+
     /** list of observers */
     private ArrayList<Observer> observers;
     /** recursion depth of the fractal drawing */
@@ -19,12 +67,52 @@ public class GenerateFractal implements Subject {
     private Color padColor;
     /** color of the pear */
     private Color pearColor;
+    /** recently generated fractals, keyed by recursion depth and child ratio */
+    private final GeometryCache cache;
+    /** whether the fractal is generated in parallel on the fork/join pool */
+    private boolean parallel;
+    /** whether the branch directions are read from the trigonometry table */
+    private boolean trigTable;
+    /** whether a change of recursion depth extends or truncates the last fractal */
+    private boolean incremental;
+    /** circle states of every level of the last fractal, kept in incremental mode */
+    private FractalLevels levels;
+    /** pixels of the viewport per unit of the drawing in level of detail mode */
+    private double detailScale;
+    /** side in pixels of the square of a subtree's bound each of its circles needs, 0 turns level of detail off */
+    private double detailFootprint;
+    /** circles of the last getBuffer call with the colors applied, shares the cached circles */
+    private volatile CircleBuffer coloredBuffer;
+    /** index over the circles of the last buffer it was asked for */
+    private volatile SpatialIndex spatialIndex;
+    /** guards the incremental levels, which may be extended from the background thread */
+    private final Object generateLock = new Object();
+    /** whether the fractal is generated in the background before observers are notified */
+    private boolean async;
+    /** background thread generating the fractal in async mode */
+    private ExecutorService executor;
+    /** generation of the most recent data in async mode, may still be running */
+    private Future<?> pending;
+    /** number of setData calls made in async mode, identifies the most recent one */
+    private long requestCount;
 
     /**
      * Constructor for GenerateFractal, instantiate the list of observers
      */
     public GenerateFractal() {
+        this(GeometryCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for GenerateFractal, instantiate the list of observers
+     * and a cache holding the given number of fractals and at most
+     * GeometryCache.DEFAULT_MAX_BYTES bytes of them
+     *
+     * @param cacheCapacity maximum number of fractals kept in the cache
+     */
+    public GenerateFractal(int cacheCapacity) {
         observers = new ArrayList<>();
+        cache = new GeometryCache(cacheCapacity);
     }
 
     /**
@@ -58,6 +146,10 @@ public class GenerateFractal implements Subject {
      */
     @Override
     public void setData(int recursionDepth, int c2pRatio, Color padColor, Color pearColor) {
+        if (async) {
+            requestData(recursionDepth, c2pRatio / 100.0, padColor, pearColor);
+            return;
+        }
         this.recursionDepth = recursionDepth;
         this.childRatio = c2pRatio / 100.0;
         this.padColor = padColor;
@@ -65,42 +157,948 @@ public class GenerateFractal implements Subject {
         notifyAllObservers();
     }
 
+    /**
+     * Generates the fractal for the data in the background, cancelling the
+     * generation of any older data still running. The data replaces the current
+     * one and the observers are notified on the event dispatch thread once the
+     * fractal is ready, unless newer data was requested in the meantime. A failure
+     * of the generation is thrown again on the event dispatch thread and the data is dropped
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    private synchronized void requestData(int recursionDepth, double childRatio, Color padColor, Color pearColor) {
+        long request = ++requestCount;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        pending = executor.submit(() -> {
+            try {
+                getBuffer(recursionDepth, childRatio);
+            } catch (CancellationException e) {
+                return;
+            } catch (Throwable e) {
+                // the Future is never read, so hand the failure to the event dispatch thread
+                SwingUtilities.invokeLater(() -> rethrow(e));
+                return;
+            }
+            if (Thread.interrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> publishData(request, recursionDepth, childRatio, padColor, pearColor));
+        });
+    }
+
+    /**
+     * Throws a failure of the background generation again on the current thread,
+     * so it reaches that thread's uncaught exception handler
+     *
+     * @param failure exception thrown while generating
+     */
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException("fractal generation failed", failure);
+    }
+
+    /**
+     * Replaces the current data with generated data and notifies the observers,
+     * does nothing if newer data was requested since
+     *
+     * @param request number of the setData call that requested the data
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    private void publishData(long request, int recursionDepth, double childRatio, Color padColor, Color pearColor) {
+        synchronized (this) {
+            if (request != requestCount) {
+                return;
+            }
+            this.recursionDepth = recursionDepth;
+            this.childRatio = childRatio;
+            this.padColor = padColor;
+            this.pearColor = pearColor;
+        }
+        notifyAllObservers();
+    }
+
+    /**
+     * Sets whether setData generates the fractal on a background thread and only
+     * notifies the observers, on the event dispatch thread, once it is ready.
+     * Data set while an older fractal is still generating replaces it
+     *
+     * @param async true to generate in the background
+     */
+    public synchronized void setAsync(boolean async) {
+        if (async && executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fractal-generator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else if (!async && executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            pending = null;
+        }
+        this.async = async;
+    }
+
+    /**
+     * Returns whether the fractal is generated in the background
+     *
+     * @return true if setData generates in the background
+     */
+    public synchronized boolean isAsync() {
+        return async;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public ArrayList<Circle> getData() {
-        ArrayList<Circle> circles = new ArrayList<>();
-        generateCircle(circles, recursionDepth, 3 * Math.PI / 2, 140.0, 450.0, 600.0);
+        return getBuffer().toCircles();
+    }
+
+    /**
+     * Generates the circles straight into a chunked list, in the same order as getData,
+     * without going through the cache or a CircleBuffer. Meant for fractals too large
+     * for the single array of an ArrayList, the list adds chunks as the circles come
+     * and is not sized up front, so no array capacity limits it
+     *
+     * @return a chunked list of the circles to be drawn
+     */
+    public ChunkedArrayList<Circle> getChunkedData() {
+        ChunkedArrayList<Circle> circles = new ChunkedArrayList<>();
+        forEachCircle((x, y, diameter, colorIndex) -> circles.add(new Circle(x, y, diameter, diameter, colorIndex)));
+        return circles;
+    }
+
+    /**
+     * Generates the circles straight into a new store outside the Java heap, in the
+     * same order as getData, without going through the cache. The caller owns the
+     * store and must close it
+     *
+     * @return an off-heap store of the circles to be drawn
+     */
+    public OffHeapCircleStore getOffHeapData() {
+        OffHeapCircleStore circles = new OffHeapCircleStore(padColor, pearColor);
+        try {
+            forEachCircle(circles);
+        } catch (RuntimeException | Error e) {
+            circles.close();
+            throw e;
+        }
+        return circles;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The cache keeps the circles without colors and may hand them to other threads,
+     * so the colors are applied to a buffer sharing the cached circles, reused while
+     * neither the circles nor the colors change
+     */
+    @Override
+    public CircleBuffer getBuffer() {
+        CircleBuffer geometry = getBuffer(recursionDepth, childRatio);
+        CircleBuffer circles = coloredBuffer;
+        Palette palette = circles == null ? null : circles.getPalette();
+        if (circles == null || !circles.sharesCircles(geometry)
+                || !Objects.equals(palette.getColor(CircleBuffer.PAD), padColor) || !Objects.equals(palette.getColor(CircleBuffer.PEAR), pearColor)) {
+            circles = geometry.withPalette(padColor, pearColor);
+            coloredBuffer = circles;
+        }
+        return circles;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Palette getPalette() {
+        return new Palette(padColor, pearColor);
+    }
+
+    /**
+     * Retrieves the data as a store outside the Java heap, the generated circles are
+     * kept on the heap so there is none, see getOffHeapData for generating one
+     *
+     * @return null
+     */
+    @Override
+    public OffHeapCircleStore getOffHeapCircles() {
+        return null;
+    }
+
+    /**
+     * Looks up the fractal in the cache, generating it on a miss
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @return a buffer holding the circles
+     */
+    private CircleBuffer getBuffer(int recursionDepth, double childRatio) {
+        CircleBuffer circles = cache.get(recursionDepth, childRatio);
+        if (circles == null) {
+            circles = generate(recursionDepth, childRatio);
+            cache.put(recursionDepth, childRatio, circles);
+        }
+        return circles;
+    }
+
+    /**
+     * Retrieves a spatial index over the circles of getBuffer, built the first time
+     * it is asked for and reused until the data changes. The index is built without
+     * holding the lock of this object, so a background setData is not held up by it,
+     * and two threads asking at once may both build it
+     *
+     * @return an index over the current circles
+     */
+    @Override
+    public SpatialIndex getSpatialIndex() {
+        CircleBuffer circles = getBuffer();
+        SpatialIndex index = spatialIndex;
+        if (index == null || index.getCircles() != circles) {
+            index = new SpatialIndex(circles);
+            spatialIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Retrieves the cache of generated fractals, for its statistics
+     *
+     * @return the cache of generated fractals
+     */
+    public GeometryCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Generates the fractal, bypassing the cache. The geometry does not depend on the
+     * colors, which may not be set yet in async mode, so the buffer has none until
+     * getBuffer applies the current ones
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @return a buffer holding the circles
+     */
+    private CircleBuffer generate(int recursionDepth, double childRatio) {
+        if (incremental) {
+            synchronized (generateLock) {
+                if (levels == null || !levels.matches(childRatio, trigTable)) {
+                    levels = new FractalLevels(childRatio, trigTable);
+                }
+                return levels.toBuffer(recursionDepth, detailBound());
+            }
+        }
+        double detailBound = detailBound();
+        int capacity = bufferCapacity(treeSize(subtreeLevels(recursionDepth, START_RADIUS, childRatio, detailBound)));
+        CircleBuffer circles = new CircleBuffer(capacity);
+        if (parallel) {
+            circles.setSize(capacity);
+            // the pool's threads never see the interrupt of this one, so the tasks check a flag instead
+            AtomicBoolean cancelled = new AtomicBoolean();
+            GenerateTask task = new GenerateTask(circles, 0, cancelled, childRatio, detailBound, recursionDepth, START_ANGLE, START_OCTANT, START_RADIUS, START_X, START_Y);
+            ForkJoinPool.commonPool().execute(task);
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                cancelled.set(true);
+                Thread.currentThread().interrupt();
+                throw new CancellationException("fractal generation cancelled");
+            } catch (ExecutionException e) {
+                rethrow(e.getCause());
+            }
+            return circles;
+        }
+        generateCircle(circles, childRatio, detailBound, recursionDepth, START_ANGLE, START_OCTANT, START_RADIUS, START_X, START_Y, null);
         return circles;
     }
 
     /**
-     * Recursive method that generate and add circles to the ArrayList
-     * @param circles the ArrayList that stores all the data
+     * Sets the level of detail mode, made for drawing the fractal in a viewport of
+     * the given size. A subtree whose bounding circle is narrower than the footprint
+     * in the viewport is cut at its first circle, which is drawn as a pear, so the
+     * levels below it that would all fall inside a footprint are never generated.
+     * getBuffer with a viewport zooms in and ignores the mode
+     *
+     * @param viewportWidth width of the viewport in pixels
+     * @param viewportHeight height of the viewport in pixels
+     * @param footprint width in pixels under which a subtree is cut, 0 to turn the mode off
+     */
+    public void setLevelOfDetail(int viewportWidth, int viewportHeight, double footprint) {
+        if (viewportWidth < 1 || viewportHeight < 1) {
+            throw new IllegalArgumentException("viewport: " + viewportWidth + "x" + viewportHeight);
+        }
+        if (footprint < 0) {
+            throw new IllegalArgumentException("footprint: " + footprint);
+        }
+        double scale = Math.min(viewportWidth / (double) DRAWING_WIDTH, viewportHeight / (double) DRAWING_HEIGHT);
+        if (scale != detailScale || footprint != detailFootprint) {
+            cache.clear();
+        }
+        detailScale = scale;
+        detailFootprint = footprint;
+    }
+
+    /**
+     * Retrieves the footprint of level of detail mode
+     *
+     * @return width in pixels under which a subtree is cut, 0 if the mode is off
+     */
+    public double getDetailFootprint() {
+        return detailFootprint;
+    }
+
+    /**
+     * Returns the bound under which a subtree is cut in level of detail mode, in the
+     * units of the drawing. A subtree of radius r fits in a circle of radius
+     * r (1 + childRatio) / (1 - childRatio) around its first circle, the subtree is
+     * cut when the radius of that circle is under the returned one
+     *
+     * @return radius of the smallest bounding circle kept, 0 when the mode is off
+     */
+    private double detailBound() {
+        if (detailFootprint == 0) {
+            return 0;
+        }
+        return detailFootprint / (2 * detailScale);
+    }
+
+    /**
+     * Sets whether the branch directions are read from a table of the eight
+     * multiples of 45 degrees instead of calling Math.cos and Math.sin, the
+     * coordinates then differ from the computed ones only by rounding
+     *
+     * @param trigTable true to use the trigonometry table
+     */
+    public void setTrigTable(boolean trigTable) {
+        if (this.trigTable != trigTable) {
+            cache.clear();
+        }
+        this.trigTable = trigTable;
+    }
+
+    /**
+     * Returns whether the branch directions are read from the trigonometry table
+     *
+     * @return true if the trigonometry table is used
+     */
+    public boolean isTrigTable() {
+        return trigTable;
+    }
+
+    /**
+     * Predicts how many circles the current data will generate
+     *
+     * @return number of circles getData will return
+     */
+    public long predictCircleCount() {
+        return treeSize(subtreeLevels(recursionDepth, START_RADIUS, childRatio, detailBound()));
+    }
+
+    /**
+     * Predicts how many circles a fractal will generate without generating it.
+     * Every circle of a level has the same radius, so the circles form a complete
+     * binary tree whose levels stop at the recursion depth or at the first level of pears
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio, 0.5 for a c2pRatio of 50
+     * @return number of circles generated, Long.MAX_VALUE if it does not fit in a long
+     */
+    public static long predictCircleCount(int recursionDepth, double childRatio) {
+        return treeSize(subtreeLevels(recursionDepth, START_RADIUS, childRatio, 0));
+    }
+
+    /**
+     * Returns the number of circles in a complete binary tree with the given levels
+     *
+     * @param levels number of levels in the tree
+     * @return number of circles, Long.MAX_VALUE if it does not fit in a long
+     */
+    private static long treeSize(int levels) {
+        if (levels >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << levels) - 1;
+    }
+
+    /**
+     * pre : count fits in an array (throws IllegalStateException if not)
+     * post: returns the count as a buffer capacity
+     *
+     * @param count number of circles to hold
+     * @return capacity of the buffer
+     */
+    private static int bufferCapacity(long count) {
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("too many circles: " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Generates the fractal and hands every circle to the consumer as soon as it is
+     * produced, in the same order as getData, without keeping the circles in memory
+     *
+     * @param consumer receives the circles
+     */
+    public void forEachCircle(CircleConsumer consumer) {
+        forEachCircle(consumer, null);
+    }
+
+    /**
+     * Generates the part of the fractal that can be seen through the viewport and hands
+     * every circle to the consumer as soon as it is produced, in the same order as getData.
+     * Subtrees whose bounding circle lies entirely outside the viewport are skipped, so
+     * the circles drawn inside the viewport are the same as without culling
+     *
+     * @param consumer receives the circles
+     * @param viewport visible rectangle in the coordinates of the drawing, null to generate everything
+     */
+    public void forEachCircle(CircleConsumer consumer, Rectangle2D viewport) {
+        generateCircle(consumer, childRatio, detailBound(), recursionDepth, START_ANGLE, START_OCTANT, START_RADIUS, START_X, START_Y, viewport);
+    }
+
+    /**
+     * Generates the part of the fractal that can be seen through the viewport, bypassing
+     * the cache, see forEachCircle
+     *
+     * @param viewport visible rectangle in the coordinates of the drawing, null to generate everything
+     * @return a buffer holding the visible circles
+     */
+    public CircleBuffer getBuffer(Rectangle2D viewport) {
+        return getBuffer(viewport, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircleBuffer getBuffer(Rectangle2D viewport, int maxDepth) {
+        return getViewSource().getBuffer(viewport, maxDepth);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The data is read under the lock a background setData publishes under, and the
+     * source generates from its own copy of it
+     */
+    @Override
+    public synchronized ViewSource getViewSource() {
+        int recursionDepth = this.recursionDepth;
+        double childRatio = this.childRatio;
+        Color padColor = this.padColor;
+        Color pearColor = this.pearColor;
+        return (viewport, maxDepth) -> {
+            CircleBuffer circles = new CircleBuffer(padColor, pearColor);
+            generateCircle(circles, childRatio, 0, Math.min(recursionDepth, maxDepth),
+                    START_ANGLE, START_OCTANT, START_RADIUS, START_X, START_Y, viewport);
+            return circles;
+        };
+    }
+
+    /**
+     * Retrieves the recursion depth of the fractal drawing
+     *
+     * @return how many times the recursive function is called
+     */
+    public int getRecursionDepth() {
+        return recursionDepth;
+    }
+
+    /**
+     * Retrieves the child to parent size ratio
+     *
+     * @return size of a child circle relative to its parent
+     */
+    public double getChildRatio() {
+        return childRatio;
+    }
+
+    /**
+     * Retrieves the color of the pads
+     *
+     * @return color of the pads
+     */
+    public Color getPadColor() {
+        return padColor;
+    }
+
+    /**
+     * Retrieves the color of the pears
+     *
+     * @return color of the pears
+     */
+    public Color getPearColor() {
+        return pearColor;
+    }
+
+    /**
+     * Sets whether the fractal is generated incrementally. The circles computed for
+     * the current ratio are kept level by level and the buffer of each depth reads the
+     * first levels of them, so changing the recursion depth only computes levels never
+     * computed before and copies nothing. Levels past the current depth are kept, at
+     * 24 bytes per circle plus 28 per circle of the deepest level, until the ratio changes
+     *
+     * @param incremental true to extend or truncate the last fractal
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            levels = null;
+        }
+    }
+
+    /**
+     * Returns whether the fractal is generated incrementally
+     *
+     * @return true if the last fractal is extended or truncated
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets whether the fractal is generated in parallel, the circles are produced
+     * in the same order either way
+     *
+     * @param parallel true to split the generation across the fork/join pool
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns whether the fractal is generated in parallel
+     *
+     * @return true if the generation is split across the fork/join pool
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Counts the levels of circles a subtree will produce before either the
+     * recursion count runs out, the circles become pears or their subtrees are cut
+     *
+     * @param recursionCount recursion depth of the subtree
+     * @param radius radius of the subtree's first circle
+     * @param childRatio child to parent size ratio
+     * @param detailBound subtrees with a smaller bounding radius are cut, 0 to keep everything
+     * @return number of levels in the subtree
+     */
+    private static int subtreeLevels(int recursionCount, double radius, double childRatio, double detailBound) {
+        double subtreeRadius = subtreeRadius(childRatio);
+        int levels = 0;
+        while (recursionCount >= 1 && radius >= 1) {
+            levels++;
+            if (recursionCount == 1 || radius <= PEAR_RADIUS || radius * subtreeRadius < detailBound) {
+                break;
+            }
+            recursionCount--;
+            radius *= childRatio;
+        }
+        return levels;
+    }
+
+    /**
+     * Returns how many times its first radius the bounding circle of a subtree is
+     *
+     * @param childRatio child to parent size ratio
+     * @return ratio of the subtree's bound to its first radius, infinite if the circles do not shrink
+     */
+    private static double subtreeRadius(double childRatio) {
+        return childRatio < 1 ? (1 + childRatio) / (1 - childRatio) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Generates and hands circles to the consumer, visiting the circles in the same
+     * order as the recursive algorithm but keeping the pending circles on an explicit
+     * stack of primitives instead of the Java call stack
+     * @param circles the consumer that receives all the data
+     * @param childRatio child to parent size ratio
+     * @param detailBound subtrees with a smaller bounding radius are drawn as their first circle, 0 to keep everything
      * @param recursionCount recursion depth
      * @param angle current angle
+     * @param octant current angle as a multiple of 45 degrees, used with the trigonometry table
      * @param radius radius of the circle
      * @param x starting x coordinate
      * @param y starting y coordinate
+     * @param viewport subtrees entirely outside this rectangle are skipped, null to keep everything
      */
-    private void generateCircle(ArrayList<Circle> circles, int recursionCount, double angle, double radius, double x, double y) {
-        if (recursionCount >= 1 && radius >= 1) {
-            if (recursionCount == 1 || radius <= 2) {
-                Circle pear = new Circle(x - radius, y - radius, radius * 2, radius * 2, pearColor);
-                circles.add(pear);
+    private void generateCircle(CircleConsumer circles, double childRatio, double detailBound, int recursionCount, double angle, int octant, double radius, double x, double y, Rectangle2D viewport) {
+        boolean useTable = trigTable;
+        // a subtree fits in a circle this many times its first radius around its first circle
+        double subtreeRadius = subtreeRadius(childRatio);
+        if (childRatio >= 1) {
+            viewport = null;
+        }
+        int capacity = STACK_CAPACITY;
+        int[] counts = new int[capacity];
+        double[] angles = new double[capacity];
+        int[] octants = new int[capacity];
+        double[] radii = new double[capacity];
+        double[] xs = new double[capacity];
+        double[] ys = new double[capacity];
+        int top = 0;
+        counts[0] = recursionCount;
+        angles[0] = angle;
+        octants[0] = octant;
+        radii[0] = radius;
+        xs[0] = x;
+        ys[0] = y;
+        top++;
+
+        int untilCheck = CANCEL_CHECK_INTERVAL;
+        while (top > 0) {
+            if (--untilCheck == 0) {
+                checkCancelled();
+                untilCheck = CANCEL_CHECK_INTERVAL;
+            }
+            top--;
+            recursionCount = counts[top];
+            angle = angles[top];
+            octant = octants[top];
+            radius = radii[top];
+            x = xs[top];
+            y = ys[top];
+            if (recursionCount < 1 || radius < 1) {
+                continue;
+            }
+            if (viewport != null && outside(viewport, x, y, radius * subtreeRadius + CULL_MARGIN)) {
+                continue;
+            }
+            // a subtree narrower than the footprint of level of detail mode is drawn as its first circle
+            if (recursionCount == 1 || radius <= PEAR_RADIUS || radius * subtreeRadius < detailBound) {
+                circles.accept(x - radius, y - radius, radius * 2, CircleBuffer.PEAR);
+                continue;
+            }
+            circles.accept(x - radius, y - radius, radius * 2.0, CircleBuffer.PAD);
+
+            if (top + 2 > capacity) {
+                capacity *= 2;
+                counts = Arrays.copyOf(counts, capacity);
+                angles = Arrays.copyOf(angles, capacity);
+                octants = Arrays.copyOf(octants, capacity);
+                radii = Arrays.copyOf(radii, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+            }
+            // push the right branch first so the left branch is popped, and drawn, first
+            double distance = radius + radius * childRatio;
+            int rightOctant = (octant + 7) & 7;
+            counts[top] = recursionCount - 1;
+            angles[top] = angle - Math.PI / 4;
+            octants[top] = rightOctant;
+            radii[top] = radius * childRatio;
+            if (useTable) {
+                xs[top] = distance * UNIT_X[rightOctant] + x;
+                ys[top] = distance * UNIT_Y[rightOctant] + y;
+            } else {
+                xs[top] = distance * Math.cos(angle - Math.PI / 4) + x;
+                ys[top] = distance * Math.sin(angle - Math.PI / 4) + y;
+            }
+            top++;
+            int leftOctant = (octant + 1) & 7;
+            counts[top] = recursionCount - 1;
+            angles[top] = angle + Math.PI / 4;
+            octants[top] = leftOctant;
+            radii[top] = radius * childRatio;
+            if (useTable) {
+                xs[top] = distance * UNIT_X[leftOctant] + x;
+                ys[top] = distance * UNIT_Y[leftOctant] + y;
             } else {
-                Circle pad = new Circle(x - radius, y - radius, radius * 2.0, radius * 2.0, padColor);
-                circles.add(pad);
+                xs[top] = distance * Math.cos(angle + Math.PI / 4) + x;
+                ys[top] = distance * Math.sin(angle + Math.PI / 4) + y;
+            }
+            top++;
+        }
+    }
 
-                double newX = (radius + radius * childRatio) * Math.cos(angle + Math.PI / 4) + x;
-                double newY = (radius + radius * childRatio) * Math.sin(angle + Math.PI / 4) + y;
-                generateCircle(circles, recursionCount - 1, angle + Math.PI / 4, radius * childRatio, newX, newY);
-                newX = (radius + radius * childRatio) * Math.cos(angle - Math.PI / 4) + x;
-                newY = (radius + radius * childRatio) * Math.sin(angle - Math.PI / 4) + y;
-                generateCircle(circles, recursionCount - 1, angle - Math.PI / 4, radius * childRatio, newX, newY);
+    /**
+     * Returns whether a circle lies entirely outside a rectangle
+     *
+     * @param viewport the rectangle
+     * @param x x coordinate of the center of the circle
+     * @param y y coordinate of the center of the circle
+     * @param radius radius of the circle
+     * @return true if no point of the circle is inside the rectangle
+     */
+    private static boolean outside(Rectangle2D viewport, double x, double y, double radius) {
+        double dx = Math.max(0, Math.max(viewport.getMinX() - x, x - viewport.getMaxX()));
+        double dy = Math.max(0, Math.max(viewport.getMinY() - y, y - viewport.getMaxY()));
+        return dx * dx + dy * dy > radius * radius;
+    }
+
+    /**
+     * Stops the generation if the generating thread was interrupted because its
+     * fractal is no longer needed
+     */
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("fractal generation cancelled");
+        }
+    }
+
+    /**
+     * Task generating one subtree of the fractal into its place in a shared buffer.
+     * The fractal is a complete binary tree stored in preorder, so a subtree's left
+     * branch starts right after its first circle and its right branch right after
+     * the left one, and the tasks write there directly without merging anything
+     */
+    private class GenerateTask extends RecursiveAction {
+
+        /** required field to suppress Xlint warning */
+        private static final long serialVersionUID = 1;
+
+        /** buffer holding the whole fractal, sized to its circle count */
+        private final CircleBuffer circles;
+        /** index of the subtree's first circle in the buffer */
+        private final int offset;
+        /** set when the fractal is no longer needed, the tasks left then stop */
+        private final AtomicBoolean cancelled;
+        /** child to parent size ratio */
+        private final double childRatio;
+        /** subtrees with a smaller bounding radius are cut, 0 to keep everything */
+        private final double detailBound;
+        /** recursion depth of the subtree */
+        private final int recursionCount;
+        /** angle of the subtree */
+        private final double angle;
+        /** angle of the subtree as a multiple of 45 degrees */
+        private final int octant;
+        /** radius of the subtree's first circle */
+        private final double radius;
+        /** x coordinate of the subtree's first circle */
+        private final double x;
+        /** y coordinate of the subtree's first circle */
+        private final double y;
+
+        /**
+         * Constructor for the task
+         * @param circles buffer holding the whole fractal
+         * @param offset index of the subtree's first circle in the buffer
+         * @param cancelled set when the fractal is no longer needed
+         * @param childRatio child to parent size ratio
+         * @param detailBound subtrees with a smaller bounding radius are cut, 0 to keep everything
+         * @param recursionCount recursion depth
+         * @param angle current angle
+         * @param octant current angle as a multiple of 45 degrees
+         * @param radius radius of the circle
+         * @param x starting x coordinate
+         * @param y starting y coordinate
+         */
+        GenerateTask(CircleBuffer circles, int offset, AtomicBoolean cancelled, double childRatio, double detailBound, int recursionCount, double angle, int octant, double radius, double x, double y) {
+            this.circles = circles;
+            this.offset = offset;
+            this.cancelled = cancelled;
+            this.childRatio = childRatio;
+            this.detailBound = detailBound;
+            this.recursionCount = recursionCount;
+            this.angle = angle;
+            this.octant = octant;
+            this.radius = radius;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Generates the subtree, forking the left branch and computing the right one,
+         * unless the fractal was cancelled
+         */
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                throw new CancellationException("fractal generation cancelled");
+            }
+            int levels = subtreeLevels(recursionCount, radius, childRatio, detailBound);
+            if (levels < PARALLEL_THRESHOLD) {
+                generateCircle(circles.writer(offset), childRatio, detailBound, recursionCount, angle, octant, radius, x, y, null);
+                return;
+            }
+            circles.set(offset, x - radius, y - radius, radius * 2.0, CircleBuffer.PAD);
+
+            double distance = radius + radius * childRatio;
+            int leftOctant = (octant + 1) & 7;
+            int rightOctant = (octant + 7) & 7;
+            int leftOffset = offset + 1;
+            int rightOffset = leftOffset + (int) treeSize(levels - 1);
+            GenerateTask left;
+            GenerateTask right;
+            if (trigTable) {
+                left = new GenerateTask(circles, leftOffset, cancelled, childRatio, detailBound, recursionCount - 1, angle + Math.PI / 4, leftOctant, radius * childRatio,
+                        distance * UNIT_X[leftOctant] + x, distance * UNIT_Y[leftOctant] + y);
+                right = new GenerateTask(circles, rightOffset, cancelled, childRatio, detailBound, recursionCount - 1, angle - Math.PI / 4, rightOctant, radius * childRatio,
+                        distance * UNIT_X[rightOctant] + x, distance * UNIT_Y[rightOctant] + y);
+            } else {
+                left = new GenerateTask(circles, leftOffset, cancelled, childRatio, detailBound, recursionCount - 1, angle + Math.PI / 4, leftOctant, radius * childRatio,
+                        distance * Math.cos(angle + Math.PI / 4) + x, distance * Math.sin(angle + Math.PI / 4) + y);
+                right = new GenerateTask(circles, rightOffset, cancelled, childRatio, detailBound, recursionCount - 1, angle - Math.PI / 4, rightOctant, radius * childRatio,
+                        distance * Math.cos(angle - Math.PI / 4) + x, distance * Math.sin(angle - Math.PI / 4) + y);
             }
+            left.fork();
+            right.compute();
+            left.join();
         }
     }
 
+    /**
+     * Circles of a fractal stored level by level, the children of the circle at
+     * index i are at 2i + 1 and 2i + 2. Every circle of a level has the same radius,
+     * so adding a level only appends its circles and leaves the others untouched, and
+     * the fractal of any depth is the first levels of the arrays. Levels deeper than
+     * the current depth are kept, so going back to a deeper fractal of the same ratio
+     * computes nothing
+     */
+    private static class FractalLevels {
+
+        /** child to parent size ratio of the fractal */
+        private final double childRatio;
+        /** whether the branch directions are read from the trigonometry table */
+        private final boolean trigTable;
+        /** radius of the circles of each level */
+        private double[] radii;
+        /** x coordinates of the drawing window of the circles, level by level */
+        private double[] xs;
+        /** y coordinates of the drawing window of the circles, level by level */
+        private double[] ys;
+        /** diameters of the circles, level by level */
+        private double[] diameters;
+        /** x coordinates of the center of the circles of the deepest level */
+        private double[] centerXs;
+        /** y coordinates of the center of the circles of the deepest level */
+        private double[] centerYs;
+        /** angle of the circles of the deepest level */
+        private double[] angles;
+        /** angle of the circles of the deepest level as a multiple of 45 degrees */
+        private int[] octants;
+        /** number of levels computed so far, the fractals use the first ones of them */
+        private int size;
+
+        /**
+         * Constructor, stores the first circle of the fractal
+         * @param childRatio child to parent size ratio
+         * @param trigTable whether the branch directions are read from the trigonometry table
+         */
+        FractalLevels(double childRatio, boolean trigTable) {
+            this.childRatio = childRatio;
+            this.trigTable = trigTable;
+            radii = new double[] {START_RADIUS};
+            xs = new double[] {START_X - START_RADIUS};
+            ys = new double[] {START_Y - START_RADIUS};
+            diameters = new double[] {START_RADIUS * 2};
+            centerXs = new double[] {START_X};
+            centerYs = new double[] {START_Y};
+            angles = new double[] {START_ANGLE};
+            octants = new int[] {START_OCTANT};
+            size = 1;
+        }
+
+        /**
+         * Returns whether the levels belong to a fractal with the given parameters
+         *
+         * @param childRatio child to parent size ratio
+         * @param trigTable whether the branch directions are read from the trigonometry table
+         * @return true if the stored circles can be reused
+         */
+        boolean matches(double childRatio, boolean trigTable) {
+            return Double.compare(this.childRatio, childRatio) == 0 && this.trigTable == trigTable;
+        }
+
+        /**
+         * Creates the buffer of a fractal with the given recursion depth, computing
+         * the missing levels first. The buffer shares the stored arrays and reads
+         * their first levels, so only the missing levels cost time and memory
+         *
+         * @param recursionDepth recursion depth of the fractal drawing
+         * @param detailBound subtrees with a smaller bounding radius are cut, 0 to keep everything
+         * @return a buffer holding the circles level by level, drawn in the same order as the generator, without colors
+         */
+        CircleBuffer toBuffer(int recursionDepth, double detailBound) {
+            int levelCount = subtreeLevels(recursionDepth, START_RADIUS, childRatio, detailBound);
+            if (levelCount == 0) {
+                return new CircleBuffer(0);
+            }
+            bufferCapacity(treeSize(levelCount));
+            while (size < levelCount) {
+                checkCancelled();
+                addLevel();
+            }
+            return new CircleBuffer(xs, ys, diameters, levelCount);
+        }
+
+        /**
+         * Computes the children of every circle of the deepest level and appends them.
+         * The arrays grow by copying, so buffers made earlier keep reading the old
+         * ones, which are never written again
+         */
+        private void addLevel() {
+            int first = (1 << (size - 1)) - 1;
+            int count = 1 << (size - 1);
+            int childFirst = first + count;
+            int childCount = bufferCapacity(2L * count);
+            int end = bufferCapacity((long) childFirst + childCount);
+            if (end > xs.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, 2L * xs.length + 1));
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                diameters = Arrays.copyOf(diameters, capacity);
+            }
+            double radius = radii[size - 1];
+            double childRadius = radius * childRatio;
+            double distance = radius + radius * childRatio;
+            double[] childXs = new double[childCount];
+            double[] childYs = new double[childCount];
+            double[] childAngles = new double[childCount];
+            int[] childOctants = new int[childCount];
+            for (int i = 0; i < count; i++) {
+                double x = centerXs[i];
+                double y = centerYs[i];
+                double angle = angles[i];
+                int octant = octants[i];
+                int left = 2 * i;
+                int right = left + 1;
+                childAngles[left] = angle + Math.PI / 4;
+                childOctants[left] = (octant + 1) & 7;
+                childAngles[right] = angle - Math.PI / 4;
+                childOctants[right] = (octant + 7) & 7;
+                if (trigTable) {
+                    childXs[left] = distance * UNIT_X[childOctants[left]] + x;
+                    childYs[left] = distance * UNIT_Y[childOctants[left]] + y;
+                    childXs[right] = distance * UNIT_X[childOctants[right]] + x;
+                    childYs[right] = distance * UNIT_Y[childOctants[right]] + y;
+                } else {
+                    childXs[left] = distance * Math.cos(angle + Math.PI / 4) + x;
+                    childYs[left] = distance * Math.sin(angle + Math.PI / 4) + y;
+                    childXs[right] = distance * Math.cos(angle - Math.PI / 4) + x;
+                    childYs[right] = distance * Math.sin(angle - Math.PI / 4) + y;
+                }
+            }
+            for (int i = 0; i < childCount; i++) {
+                xs[childFirst + i] = childXs[i] - childRadius;
+                ys[childFirst + i] = childYs[i] - childRadius;
+                diameters[childFirst + i] = childRadius * 2;
+            }
+            if (size == radii.length) {
+                radii = Arrays.copyOf(radii, size * 2);
+            }
+            radii[size] = childRadius;
+            centerXs = childXs;
+            centerYs = childYs;
+            angles = childAngles;
+            octants = childOctants;
+            size++;
+        }
+    }
 }
@@ -0,0 +1,248 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of generated fractals, keyed by the
+ * parameters that change the shape of the fractal. The colors are not part
+ * of the key, they are applied to the cached buffer through its palette.
+ * The cache is bounded both in fractals and in bytes, a fractal taking
+ * CircleBuffer.BYTES_PER_CIRCLE bytes per circle. The most recently added
+ * fractal is always kept, even alone over the byte bound, so the fractal in
+ * use is never generated twice
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class GeometryCache {
+
+    /** default number of fractals kept in the cache */
+    public static final int DEFAULT_CAPACITY = 8;
+    /** default number of bytes of fractals kept in the cache, a quarter of the heap */
+    public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+    /** cached buffers, ordered from least to most recently used */
+    private final LinkedHashMap<Key, CircleBuffer> entries;
+    /** maximum number of fractals kept in the cache */
+    private final int capacity;
+    /** maximum number of bytes of fractals kept in the cache */
+    private final long maxBytes;
+    /** number of bytes of the fractals currently in the cache */
+    private long bytes;
+    /** number of lookups that found a cached fractal */
+    private long hits;
+    /** number of lookups that did not find a cached fractal */
+    private long misses;
+    /** number of fractals removed to make room for newer ones */
+    private long evictions;
+
+    /**
+     * Constructor, initialize the cache to default capacity
+     */
+    public GeometryCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * pre : capacity &gt;= 1 (throws IllegalArgumentException if not)
+     * post: constructs an empty cache holding at most capacity fractals and
+     *       DEFAULT_MAX_BYTES bytes
+     *
+     * @param capacity maximum number of fractals kept in the cache
+     */
+    public GeometryCache(int capacity) {
+        this(capacity, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * pre : capacity &gt;= 1 and maxBytes &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty cache holding at most capacity fractals and maxBytes
+     *       bytes, besides the most recently added fractal
+     *
+     * @param capacity maximum number of fractals kept in the cache
+     * @param maxBytes maximum number of bytes of fractals kept in the cache
+     */
+    public GeometryCache(int capacity, long maxBytes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes);
+        }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Looks up a fractal and marks it as most recently used
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @return the cached buffer, null if not cached
+     */
+    public synchronized CircleBuffer get(int recursionDepth, double childRatio) {
+        CircleBuffer circles = entries.get(new Key(recursionDepth, childRatio));
+        if (circles == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return circles;
+    }
+
+    /**
+     * Adds a fractal to the cache, evicting the least recently used ones until the
+     * others fit in the bounds beside it
+     *
+     * @param recursionDepth recursion depth of the fractal drawing
+     * @param childRatio child to parent size ratio
+     * @param circles the generated fractal
+     */
+    public synchronized void put(int recursionDepth, double childRatio, CircleBuffer circles) {
+        CircleBuffer replaced = entries.put(new Key(recursionDepth, childRatio), circles);
+        if (replaced != null) {
+            bytes -= bytesOf(replaced);
+        }
+        bytes += bytesOf(circles);
+        Iterator<Map.Entry<Key, CircleBuffer>> eldest = entries.entrySet().iterator();
+        while (entries.size() > 1 && (entries.size() > capacity || bytes > maxBytes)) {
+            bytes -= bytesOf(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all fractals from the cache, the statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Computes the bytes taken by a fractal
+     *
+     * @param circles the fractal
+     * @return number of bytes of its circles
+     */
+    private static long bytesOf(CircleBuffer circles) {
+        return (long) circles.size() * CircleBuffer.BYTES_PER_CIRCLE;
+    }
+
+    /**
+     * post: returns the current number of fractals in the cache
+     *
+     * @return the current number of fractals in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retrieves the maximum number of fractals kept in the cache
+     *
+     * @return maximum number of fractals kept in the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Retrieves the maximum number of bytes of fractals kept in the cache
+     *
+     * @return maximum number of bytes kept in the cache
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Retrieves the number of bytes of the fractals currently in the cache
+     *
+     * @return number of bytes in the cache
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Retrieves the number of lookups that found a cached fractal
+     *
+     * @return number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that did not find a cached fractal
+     *
+     * @return number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of fractals removed to make room for newer ones
+     *
+     * @return number of cache evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * creates a summary of the cache statistics
+     *
+     * @return a string representation of the cache
+     */
+    public synchronized String toString() {
+        return "GeometryCache[size=" + entries.size() + ", capacity=" + capacity + ", bytes=" + bytes
+                + ", maxBytes=" + maxBytes + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * Parameters identifying the shape of a fractal
+     */
+    private static class Key {
+
+        /** recursion depth of the fractal drawing */
+        private final int recursionDepth;
+        /** child to parent size ratio */
+        private final double childRatio;
+
+        /**
+         * Constructor for the key
+         * @param recursionDepth recursion depth of the fractal drawing
+         * @param childRatio child to parent size ratio
+         */
+        Key(int recursionDepth, double childRatio) {
+            this.recursionDepth = recursionDepth;
+            this.childRatio = childRatio;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return recursionDepth == key.recursionDepth && Double.compare(childRatio, key.childRatio) == 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * recursionDepth + Double.hashCode(childRatio);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.Serializable;
+
+/**
+ * Decides how much larger the array of a list becomes when it runs out of room.
+ * The capacity is multiplied by a constant factor, so appending n elements copies
+ * fewer than n / (factor - 1) elements in total. A small factor wastes less memory
+ * after the last growth, a large factor copies less
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public final class GrowthPolicy implements Serializable {
+
+    /** largest array length the virtual machine reliably allocates */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    /** doubles the capacity, the growth ArrayList has always used */
+    public static final GrowthPolicy DOUBLING = geometric(2);
+
+    /** serializable ID */
+    private static final long serialVersionUID = 1;
+
+    /** factor the capacity is multiplied by on each growth */
+    private final double factor;
+
+    /**
+     * Constructor for a policy multiplying the capacity by the given factor
+     *
+     * @param factor factor the capacity is multiplied by
+     */
+    private GrowthPolicy(double factor) {
+        this.factor = factor;
+    }
+
+    /**
+     * pre : factor &gt; 1 (throws IllegalArgumentException if not)
+     * post: returns a policy multiplying the capacity by factor on each growth
+     *
+     * @param factor factor the capacity is multiplied by
+     * @return the growth policy
+     */
+    public static GrowthPolicy geometric(double factor) {
+        if (!(factor > 1)) {
+            throw new IllegalArgumentException("factor: " + factor);
+        }
+        return new GrowthPolicy(factor);
+    }
+
+    /**
+     * Retrieves the factor the capacity is multiplied by on each growth
+     *
+     * @return the growth factor
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * pre : required &lt;= MAX_CAPACITY (throws OutOfMemoryError if not)
+     * post: returns the capacity of the grown array, the current capacity times the
+     * factor plus one, or more if the required capacity is even larger
+     *
+     * @param capacity current capacity of the array
+     * @param required capacity that must at least be reached
+     * @return new capacity of the array
+     */
+    public int grow(int capacity, int required) {
+        if (required < 0 || required > MAX_CAPACITY) {
+            throw new OutOfMemoryError("required capacity: " + Integer.toUnsignedString(required));
+        }
+        long grown = (long) Math.min(MAX_CAPACITY, capacity * factor + 1);
+        return (int) Math.max(grown, required);
+    }
+
+    /**
+     * creates a description of the policy
+     *
+     * @return a string representation of the policy
+     */
+    public String toString() {
+        return "GrowthPolicy[factor=" + factor + "]";
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Compares the growth of lists appending 10 million elements one at a time, with
+ * ArrayList at several geometric growth factors and with the segmented
+ * ChunkedArrayList, which never copies the elements it holds. For each the best
+ * append time of several runs is printed with the elements copied by the growths
+ * and the peak array storage, the largest number of slots live at once, which for
+ * ArrayList is the old and the new array during the last growth
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class GrowthPolicyBenchmark {
+
+    /** default number of elements appended */
+    private static final int ELEMENTS = 10_000_000;
+    /** growth factors of ArrayList compared */
+    private static final double[] FACTORS = {1.25, 1.5, 2, 3};
+    /** untimed runs before timing */
+    private static final int WARMUP = 2;
+    /** timed runs, the best one is kept */
+    private static final int RUNS = 5;
+
+    /**
+     * Application main method
+     * @param args optional number of elements appended
+     */
+    public static void main(String[] args) {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : ELEMENTS;
+        Integer element = 1;
+        for (double factor : FACTORS) {
+            GrowthPolicy policy = GrowthPolicy.geometric(factor);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < WARMUP + RUNS; run++) {
+                long start = System.nanoTime();
+                ArrayList<Integer> list = new ArrayList<>(ArrayList.DEFAULT_CAPACITY, policy);
+                for (int i = 0; i < elements; i++) {
+                    list.add(element);
+                }
+                long nanos = System.nanoTime() - start;
+                if (run >= WARMUP) {
+                    best = Math.min(best, nanos);
+                }
+            }
+            // replay the growths of the appends, add grows to size + 1 when full
+            long copied = 0;
+            long peak = 0;
+            int capacity = ArrayList.DEFAULT_CAPACITY;
+            for (int size = 0; size < elements; size++) {
+                if (size == capacity) {
+                    int grown = policy.grow(capacity, size + 1);
+                    copied += size;
+                    peak = Math.max(peak, (long) capacity + grown);
+                    capacity = grown;
+                }
+            }
+            peak = Math.max(peak, capacity);
+            print("ArrayList, factor " + factor, best, copied, peak, elements);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < WARMUP + RUNS; run++) {
+            long start = System.nanoTime();
+            ChunkedArrayList<Integer> list = new ChunkedArrayList<>();
+            for (int i = 0; i < elements; i++) {
+                list.add(element);
+            }
+            long nanos = System.nanoTime() - start;
+            if (run >= WARMUP) {
+                best = Math.min(best, nanos);
+            }
+        }
+        long chunks = (elements + ChunkedArrayList.CHUNK_SIZE - 1) / ChunkedArrayList.CHUNK_SIZE;
+        print("ChunkedArrayList", best, 0, chunks * ChunkedArrayList.CHUNK_SIZE, elements);
+    }
+
+    /**
+     * Prints the figures of one list
+     *
+     * @param name description of the list
+     * @param nanos best time of the appends
+     * @param copied elements copied by the growths
+     * @param peak largest number of array slots live at once
+     * @param elements number of elements appended
+     */
+    private static void print(String name, long nanos, long copied, long peak, int elements) {
+        System.out.printf("%-26s %7.1f ms, %,12d elements copied (%.2f per element), peak %,12d slots (%.2f per element)%n",
+                name, nanos / 1e6, copied, copied / (double) elements, peak, peak / (double) elements);
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Makes an ArrayList of int values stored directly in a int[], so adding
+ * and reading values never boxes them. The backing array can be handed out for
+ * bulk reads and writes
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class IntArrayList implements Serializable, Iterable<Integer> {
+    /**
+     * list of values
+     */
+    private int[] elementData;
+    /**
+     * current number of elements in the list
+     */
+    private int size;
+    /**
+     * default capacity of the starting list
+     */
+    public static final int DEFAULT_CAPACITY = 50;
+    /**
+     * serializable ID
+     */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * Constructor, initialize IntArrayList to default capacity
+     */
+    public IntArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * pre : capacity &gt;= 0 (throws IllegalArgumentException if not)
+     * post: constructs an empty list with the given capacity
+     *
+     * @param capacity starting capacity of the IntArrayList
+     */
+    public IntArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        elementData = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * post: returns the current number of elements in the list
+     *
+     * @return the current number of elements in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the value at the given index in the list
+     *
+     * @param index index of the element desired
+     * @return the requested element
+     */
+    public int get(int index) {
+        checkIndex(index);
+        return elementData[index];
+    }
+
+    /**
+     * creates a comma-separated, bracketed version of the list
+     *
+     * @return a string representation of the IntArrayList
+     */
+    public String toString() {
+        if (size == 0) {
+            return "[]";
+        }
+        StringBuilder result = new StringBuilder("[").append(elementData[0]);
+        for (int i = 1; i < size; i++) {
+            result.append(", ").append(elementData[i]);
+        }
+        return result.append("]").toString();
+    }
+
+    /**
+     * post : returns the position of the first occurrence of the given
+     * value (-1 if not found)
+     *
+     * @param value the value to be searched
+     * @return index of the value requested, -1 if not found
+     */
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elementData[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * returns true if list is empty, false otherwise
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * post: returns true if the given value is contained in the list,
+     * false otherwise
+     *
+     * @param value value to be searched
+     * @return true if found, false otherwise
+     */
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * post: appends the given value to the end of the list
+     *
+     * @param value element to be added
+     */
+    public void add(int value) {
+        ensureCapacity(size + 1);
+        elementData[size] = value;
+        size++;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt;= size() (throws IndexOutOfBoundsException if not)
+     * post: inserts the given value at the given index, shifting subsequent
+     * values right
+     *
+     * @param index position in the IntArrayList to be added
+     * @param value element to be added
+     */
+    public void add(int index, int value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elementData, index, elementData, index + 1, size - index);
+        elementData[index] = value;
+        size++;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: removes value at the given index, shifting subsequent values left
+     *
+     * @param index index of the item to be removed
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        System.arraycopy(elementData, index + 1, elementData, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: replaces the value at the given index with the given value
+     *
+     * @param index index of the element to be updated
+     * @param value new value
+     */
+    public void set(int index, int value) {
+        checkIndex(index);
+        elementData[index] = value;
+    }
+
+    /**
+     * Clears the list and reset size
+     * post: list is empty
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * post: appends all values in the given list to the end of this list
+     *
+     * @param other list to be appended to current list
+     */
+    public void addAll(IntArrayList other) {
+        addAll(other.elementData, 0, other.size);
+    }
+
+    /**
+     * pre : 0 &lt;= offset, 0 &lt;= length, offset + length &lt;= values.length
+     * (throws IndexOutOfBoundsException if not)
+     * post: appends length values of the array starting at offset to the end of this list
+     *
+     * @param values array holding the values to be appended
+     * @param offset index of the first value to be appended
+     * @param length number of values to be appended
+     */
+    public void addAll(int[] values, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > values.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elementData, size, length);
+        size += length;
+    }
+
+    /**
+     * Retrieves the array backing the list, without copying it. The first size()
+     * entries are the elements of the list, writing them changes the list. The
+     * array is replaced whenever the list grows, so it must be fetched again after
+     * adding to the list
+     *
+     * @return the backing array, at least size() long
+     */
+    public int[] elementData() {
+        return elementData;
+    }
+
+    /**
+     * Copies the elements of the list into a new array
+     *
+     * @return an array of size() elements in the same order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * returns an iterator for this list
+     *
+     * @return an iterator for this list
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntArrayListIterator();
+    }
+
+    /**
+     * post: ensures that the underlying array has the given capacity; if not,
+     * the size is doubled (or more if given capacity is even larger)
+     *
+     * @param capacity current capacity of the List
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > elementData.length) {
+            int newCapacity = elementData.length * 2 + 1;
+            if (capacity > newCapacity) {
+                newCapacity = capacity;
+            }
+            elementData = Arrays.copyOf(elementData, newCapacity);
+        }
+    }
+
+    /**
+     * post: throws an IndexOutOfBoundsException if the given index is
+     * not a legal index of the current list
+     *
+     * @param index index to be checked
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+
+    /**
+     * Private class responsible for the functionality of an Iterator
+     */
+    private class IntArrayListIterator implements PrimitiveIterator.OfInt {
+        /**
+         * current position within the list
+         */
+        private int position;
+        /**
+         * whether it's okay to remove now
+         */
+        private boolean removeOK;
+
+        /**
+         * post: constructs an iterator for the given list
+         */
+        public IntArrayListIterator() {
+            position = 0;
+            removeOK = false;
+        }
+
+        /**
+         * post: returns true if there are more elements left, false otherwise
+         *
+         * @return true if there are more elements left, false otherwise
+         */
+        public boolean hasNext() {
+            return position < size();
+        }
+
+        /**
+         * pre : hasNext() (throws NoSuchElementException if not)
+         * post: returns the next element in the iteration without boxing it
+         *
+         * @return the next element in iteration
+         */
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int result = elementData[position];
+            position++;
+            removeOK = true;
+            return result;
+        }
+
+        /**
+         * pre : next() has been called without a call on remove (throw IllegalStateException if not)
+         * post: removes the last element returned by the iterator
+         */
+        public void remove() {
+            if (!removeOK) {
+                throw new IllegalStateException();
+            }
+            IntArrayList.this.remove(position - 1);
+            position--;
+            removeOK = false;
+        }
+    }
+}
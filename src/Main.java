@@ -12,6 +12,8 @@ public class Main {
      */
     public static void main(String[] args) {
         GenerateFractal generator = new GenerateFractal();
+        generator.setAsync(true);
+        generator.setIncremental(true);
         Display window = new Display(generator);
         GUI gui = new GUI(generator);
     }
@@ -0,0 +1,268 @@
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Subject serving fractals from circle files written by CircleFile instead of
+ * generating them. setData maps the file named by CircleFile.fileName in the
+ * directory, the circles are read from the mapping and nothing is generated
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class MappedFractal implements Subject {
+
+    /** distance added around the viewport when skipping subtrees, as in GenerateFractal */
+    private static final double CULL_MARGIN = 2;
+
+    /** list of observers */
+    private ArrayList<Observer> observers;
+    /** directory holding the circle files */
+    private final Path directory;
+    /** file of the current data, null until data is set */
+    private CircleFile file;
+    /** copy of the circles on the heap for getBuffer, null until first needed */
+    private CircleBuffer buffer;
+    /** color of the pads */
+    private Color padColor;
+    /** color of the pears */
+    private Color pearColor;
+
+    /**
+     * Constructor for MappedFractal, instantiate the list of observers
+     *
+     * @param directory directory holding the circle files
+     */
+    public MappedFractal(Path directory) {
+        observers = new ArrayList<>();
+        this.directory = directory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void attach(Observer observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void detach(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyAllObservers() {
+        for (Observer observer : observers) {
+            observer.update();
+        }
+    }
+
+    /**
+     * pre : the directory holds a circle file for the parameters (throws
+     * IllegalArgumentException if not, UncheckedIOException if it cannot be read, is
+     * corrupt or holds another fractal than its name says)
+     * post: maps the file of the fractal and notifies the observers
+     *
+     * @param recursionDepth how many times the recursive function is called
+     * @param c2pRatio       child to parent ratio
+     * @param padColor       color of the pads
+     * @param pearColor      color of the pear
+     */
+    @Override
+    public void setData(int recursionDepth, int c2pRatio, Color padColor, Color pearColor) {
+        Path path = directory.resolve(CircleFile.fileName(recursionDepth, c2pRatio));
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("no circle file for depth " + recursionDepth + ", ratio " + c2pRatio + ": " + path);
+        }
+        CircleFile opened;
+        try {
+            opened = CircleFile.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (opened.getRecursionDepth() != recursionDepth || Math.round(opened.getChildRatio() * 100) != c2pRatio) {
+            opened.close();
+            throw new UncheckedIOException(new IOException("circle file holds depth " + opened.getRecursionDepth()
+                    + ", ratio " + opened.getChildRatio() + " instead of depth " + recursionDepth + ", ratio " + c2pRatio + ": " + path));
+        }
+        synchronized (this) {
+            if (file != null) {
+                file.close();
+            }
+            file = opened;
+            buffer = null;
+            this.padColor = padColor;
+            this.pearColor = pearColor;
+            file.getCircles().setPalette(padColor, pearColor);
+        }
+        notifyAllObservers();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Circle> getData() {
+        return getBuffer().toCircles();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Palette getPalette() {
+        return new Palette(padColor, pearColor);
+    }
+
+    /**
+     * Retrieves a spatial index over the circles, the circles are kept off the heap
+     * so there is none, getBuffer with a viewport reads the circles around a point
+     *
+     * @return null
+     */
+    @Override
+    public SpatialIndex getSpatialIndex() {
+        return null;
+    }
+
+    /**
+     * Retrieves the data from the subject, copied once from the mapping onto the heap
+     * and reused until the data changes. A deep fractal may not fit on the heap,
+     * getOffHeapCircles reads the mapping without copying it
+     *
+     * @return a buffer holding the circles as primitives
+     */
+    @Override
+    public synchronized CircleBuffer getBuffer() {
+        if (buffer == null) {
+            OffHeapCircleStore circles = getCircles();
+            if (circles.size() > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("too many circles: " + circles.size());
+            }
+            buffer = circles.toBuffer(0, (int) circles.size());
+        }
+        return buffer;
+    }
+
+    /**
+     * Retrieves the part of the data that can be seen through the viewport, read
+     * straight from the mapping. The circles are stored as a complete binary tree in
+     * preorder, so a subtree that cannot reach the viewport or lies deeper than
+     * maxDepth is skipped without reading it
+     *
+     * @param viewport visible rectangle in the coordinates of the drawing, null for all of it
+     * @param maxDepth largest recursion depth to include, for quick coarse previews
+     * @return a buffer holding the visible circles
+     */
+    @Override
+    public CircleBuffer getBuffer(Rectangle2D viewport, int maxDepth) {
+        return getViewSource().getBuffer(viewport, maxDepth);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The source keeps reading the file mapped now, once newer data closes that
+     * file the source can no longer read it
+     */
+    @Override
+    public synchronized ViewSource getViewSource() {
+        OffHeapCircleStore circles = getCircles();
+        double ratio = file.getChildRatio();
+        Color padColor = this.padColor;
+        Color pearColor = this.pearColor;
+        return (viewport, maxDepth) -> visibleCircles(circles, ratio, padColor, pearColor, viewport, maxDepth);
+    }
+
+    /**
+     * Reads the circles of a store that can be seen through the viewport, see getBuffer
+     *
+     * @param circles circles of a fractal stored in preorder
+     * @param ratio child to parent size ratio of the fractal
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     * @param viewport visible rectangle in the coordinates of the drawing, null for all of it
+     * @param maxDepth largest recursion depth to include
+     * @return a buffer holding the visible circles
+     */
+    private static CircleBuffer visibleCircles(OffHeapCircleStore circles, double ratio, Color padColor, Color pearColor,
+                                               Rectangle2D viewport, int maxDepth) {
+        CircleBuffer visible = new CircleBuffer(padColor, pearColor);
+        long count = circles.size();
+        int levels = Long.SIZE - Long.numberOfLeadingZeros(count);
+        int lastLevel = Math.min(levels, maxDepth) - 1;
+        double subtreeRadius = ratio < 1 ? (1 + ratio) / (1 - ratio) : Double.POSITIVE_INFINITY;
+        int[] stack = new int[levels + 1];
+        int top = 0;
+        if (count > 0 && lastLevel >= 0) {
+            stack[top++] = 0;
+        }
+        long index = 0;
+        while (top > 0) {
+            int level = stack[--top];
+            long circle = index++;
+            double radius = circles.getDiameter(circle) / 2.0;
+            double x = circles.getX(circle) + radius;
+            double y = circles.getY(circle) + radius;
+            if (viewport != null && outside(viewport, x, y, radius * subtreeRadius + CULL_MARGIN)) {
+                index += (1L << (levels - level)) - 2;
+                continue;
+            }
+            byte colorIndex = level == lastLevel ? CircleBuffer.PEAR : circles.getColorIndex(circle);
+            visible.add(x - radius, y - radius, radius * 2, colorIndex);
+            if (level < lastLevel) {
+                stack[top++] = level + 1;
+                stack[top++] = level + 1;
+            } else {
+                index += (1L << (levels - level)) - 2;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Retrieves the circles of the current data, read straight from the mapping
+     *
+     * @return a read only store mapped onto the current circle file
+     */
+    @Override
+    public OffHeapCircleStore getOffHeapCircles() {
+        return getCircles();
+    }
+
+    /**
+     * Retrieves the circles of the current data, read from the mapping
+     *
+     * @return a read only store mapped onto the current circle file
+     */
+    public synchronized OffHeapCircleStore getCircles() {
+        if (file == null) {
+            throw new IllegalStateException("no data set");
+        }
+        return file.getCircles();
+    }
+
+    /**
+     * Returns whether a circle lies entirely outside a rectangle
+     *
+     * @param viewport the rectangle
+     * @param x x coordinate of the center of the circle
+     * @param y y coordinate of the center of the circle
+     * @param radius radius of the circle
+     * @return true if no point of the circle is inside the rectangle
+     */
+    private static boolean outside(Rectangle2D viewport, double x, double y, double radius) {
+        double dx = Math.max(0, Math.max(viewport.getMinX() - x, x - viewport.getMaxX()));
+        double dy = Math.max(0, Math.max(viewport.getMinY() - y, y - viewport.getMaxY()));
+        return dx * dx + dy * dy > radius * radius;
+    }
+}
@@ -0,0 +1,408 @@
+import java.awt.Color;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Stores circles outside the Java heap, in direct byte buffers, so the garbage
+ * collector never has to walk them however many there are. Every circle is a fixed
+ * record of RECORD_BYTES: x, y and diameter as floats followed by the palette index
+ * as an int. The records are spread over segments of SEGMENT_RECORDS records each,
+ * so the store can hold more circles than one buffer can address. The records are
+ * little endian, the same layout as the records of a CircleFile, which is read
+ * through a store mapped onto the file.
+ * The store must be closed once it is no longer needed. Closing frees the native
+ * memory and unmaps mapped segments at once instead of leaving them to the garbage
+ * collector, whose full collection to reclaim direct memory is the pause the store
+ * avoids. Close waits for reads running on other threads, and any use afterwards
+ * throws IllegalStateException. Adding circles is not thread safe
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class OffHeapCircleStore implements CircleConsumer, AutoCloseable {
+
+    /** bytes of every circle record */
+    public static final int RECORD_BYTES = 16;
+    /** offset of the x coordinate within a record */
+    public static final int X_OFFSET = 0;
+    /** offset of the y coordinate within a record */
+    public static final int Y_OFFSET = 4;
+    /** offset of the diameter within a record */
+    public static final int DIAMETER_OFFSET = 8;
+    /** offset of the palette index within a record */
+    public static final int COLOR_OFFSET = 12;
+    /** base two logarithm of the number of records in a segment */
+    private static final int SEGMENT_SHIFT = 20;
+    /** number of records in a segment */
+    public static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    /** mask giving the position of a record within its segment */
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+    /** the JDK's sun.misc.Unsafe, which frees direct buffers, null if it cannot be reached */
+    private static final Object UNSAFE;
+    /** Unsafe.invokeCleaner, frees the memory of a direct or mapped buffer, null if it cannot be reached */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            // looked up reflectively, the class is not part of the platform API
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /** segments holding the records, only the first segmentCount are allocated */
+    private ByteBuffer[] segments;
+    /** number of allocated segments */
+    private int segmentCount;
+    /** current number of circles in the store */
+    private long size;
+    /** colors of the circles, indexed by CircleBuffer.PAD and CircleBuffer.PEAR */
+    private final Palette palette;
+    /** whether the store has been closed */
+    private volatile boolean closed;
+    /** held for reading by every use of the segments and for writing by close */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** whether the segments are read only, circles cannot be added then */
+    private final boolean readOnly;
+
+    /**
+     * Constructor, creates an empty store, segments are allocated as circles are added
+     *
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    public OffHeapCircleStore(Color padColor, Color pearColor) {
+        segments = new ByteBuffer[16];
+        palette = new Palette(padColor, pearColor);
+        readOnly = false;
+    }
+
+    /**
+     * Constructor for a read only store over existing records, such as the mapped
+     * records of a file. Every segment but the last holds SEGMENT_RECORDS records
+     *
+     * @param segments segments holding the records, little endian
+     * @param size number of circles in the segments
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    OffHeapCircleStore(ByteBuffer[] segments, long size, Color padColor, Color pearColor) {
+        this.segments = segments;
+        this.segmentCount = segments.length;
+        this.size = size;
+        palette = new Palette(padColor, pearColor);
+        readOnly = true;
+    }
+
+    /**
+     * post: returns the current number of circles in the store
+     *
+     * @return the current number of circles in the store
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * returns true if store is empty, false otherwise
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Retrieves the number of bytes of native memory held by the store
+     *
+     * @return bytes allocated outside the heap
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long bytes = 0;
+            for (int segment = 0; segment < segmentCount; segment++) {
+                bytes += segments[segment].capacity();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * pre : the store is open (throws IllegalStateException if not) and not read only
+     * (throws UnsupportedOperationException if not)
+     * post: appends the given circle to the end of the store
+     *
+     * @param x x coordinate of the drawing window
+     * @param y y coordinate of the drawing window
+     * @param diameter diameter of the circle
+     * @param colorIndex palette index of the circle, CircleBuffer.PAD or CircleBuffer.PEAR
+     */
+    public void add(double x, double y, double diameter, byte colorIndex) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            if (readOnly) {
+                throw new UnsupportedOperationException("store is read only");
+            }
+            int segment = (int) (size >>> SEGMENT_SHIFT);
+            if (segment == segmentCount) {
+                if (segment == segments.length) {
+                    segments = Arrays.copyOf(segments, segments.length * 2);
+                }
+                segments[segment] = ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                segmentCount++;
+            }
+            ByteBuffer records = segments[segment];
+            int offset = ((int) size & SEGMENT_MASK) * RECORD_BYTES;
+            records.putFloat(offset + X_OFFSET, (float) x);
+            records.putFloat(offset + Y_OFFSET, (float) y);
+            records.putFloat(offset + DIAMETER_OFFSET, (float) diameter);
+            records.putInt(offset + COLOR_OFFSET, colorIndex);
+            size++;
+    
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void accept(double x, double y, double diameter, byte colorIndex) {
+        add(x, y, diameter, colorIndex);
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the x coordinate of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return x coordinate of the drawing window
+     */
+    public float getX(long index) {
+        return readFloat(index, X_OFFSET);
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the y coordinate of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return y coordinate of the drawing window
+     */
+    public float getY(long index) {
+        return readFloat(index, Y_OFFSET);
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the diameter of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return diameter of the circle
+     */
+    public float getDiameter(long index) {
+        return readFloat(index, DIAMETER_OFFSET);
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the palette index of the circle at the given index
+     *
+     * @param index index of the circle
+     * @return palette index of the circle, CircleBuffer.PAD or CircleBuffer.PEAR
+     */
+    public byte getColorIndex(long index) {
+        lock.readLock().lock();
+        try {
+            return (byte) record(index).getInt(offset(index) + COLOR_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the colors of the palette, recoloring every circle at once
+     *
+     * @param padColor color of the pads
+     * @param pearColor color of the pears
+     */
+    public void setPalette(Color padColor, Color pearColor) {
+        palette.setColor(CircleBuffer.PAD, padColor);
+        palette.setColor(CircleBuffer.PEAR, pearColor);
+    }
+
+    /**
+     * Hands every circle of the store to the consumer in order
+     *
+     * @param consumer receives the circles
+     */
+    public void forEachCircle(CircleConsumer consumer) {
+        forEachCircle(consumer, 0, size());
+    }
+
+    /**
+     * pre : 0 &lt;= from &lt;= to &lt;= size() (throws IndexOutOfBoundsException if not)
+     * post: hands the circles from index from up to but not including to to the consumer
+     *
+     * @param consumer receives the circles
+     * @param from index of the first circle
+     * @param to index after the last circle
+     */
+    public void forEachCircle(CircleConsumer consumer, long from, long to) {
+        lock.readLock().lock();
+        try {
+            if (from < 0 || from > to || to > size()) {
+                throw new IndexOutOfBoundsException("from: " + from + ", to: " + to);
+            }
+            for (long index = from; index < to; index++) {
+                ByteBuffer records = segments[(int) (index >>> SEGMENT_SHIFT)];
+                int offset = offset(index);
+                consumer.accept(records.getFloat(offset + X_OFFSET), records.getFloat(offset + Y_OFFSET),
+                        records.getFloat(offset + DIAMETER_OFFSET), (byte) records.getInt(offset + COLOR_OFFSET));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies a run of circles onto the heap, so they can be drawn by code reading
+     * a CircleBuffer
+     *
+     * @param from index of the first circle
+     * @param count largest number of circles to copy
+     * @return a buffer holding the circles from index from, with the colors of the store
+     */
+    public CircleBuffer toBuffer(long from, int count) {
+        long to = Math.min(size(), from + count);
+        CircleBuffer circles = new CircleBuffer((int) Math.max(0, to - from), palette.getColor(CircleBuffer.PAD),
+                palette.getColor(CircleBuffer.PEAR));
+        forEachCircle(circles, from, to);
+        return circles;
+    }
+
+    /**
+     * Frees the native memory of the segments, unmapping mapped ones, once the reads
+     * running on other threads are done. The store cannot be used afterwards.
+     * Closing a closed store does nothing. If the JDK offers no way to free a buffer
+     * at once it is left to the garbage collector
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (int segment = 0; segment < segmentCount; segment++) {
+                release(segments[segment]);
+            }
+            segments = null;
+            segmentCount = 0;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Frees the memory of a direct or mapped buffer, which must not be read afterwards
+     *
+     * @param buffer the buffer to free
+     */
+    private static void release(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot free off-heap segment", e);
+        }
+    }
+
+    /**
+     * Returns whether the store has been closed
+     *
+     * @return true if the store can no longer be used
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Reads a float field of a circle's record
+     *
+     * @param index index of the circle
+     * @param field offset of the field within the record
+     * @return value of the field
+     */
+    private float readFloat(long index, int field) {
+        lock.readLock().lock();
+        try {
+            return record(index).getFloat(offset(index) + field);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the segment holding a circle
+     *
+     * @param index index of the circle
+     * @return the segment of the circle
+     */
+    private ByteBuffer record(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        return segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * Computes the byte offset of a circle within its segment
+     *
+     * @param index index of the circle
+     * @return offset of the record of the circle
+     */
+    private static int offset(long index) {
+        return ((int) index & SEGMENT_MASK) * RECORD_BYTES;
+    }
+
+    /**
+     * post: throws an IllegalStateException if the store has been closed
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("store is closed");
+        }
+    }
+}
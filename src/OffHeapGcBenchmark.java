@@ -0,0 +1,146 @@
+import java.awt.Color;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Compares the garbage collection pauses of a fractal held as an ArrayList of
+ * Circle objects with the same fractal held in an OffHeapCircleStore. With the
+ * circles held, a stream of short lived garbage is allocated and the collections it
+ * causes are timed through the collector beans, then full collections are timed
+ * one by one. Finally the store is closed and its native memory must be returned at
+ * once, throws IllegalStateException if it is not or if the closed store can still be read
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class OffHeapGcBenchmark {
+
+    /** default recursion depth of the fractal held */
+    private static final int DEPTH = 22;
+    /** child to parent ratio of the fractal held */
+    private static final int RATIO = 85;
+    /** bytes of short lived garbage allocated while the circles are held */
+    private static final long GARBAGE_BYTES = 4L << 30;
+    /** bytes of each garbage array */
+    private static final int GARBAGE_CHUNK = 1 << 10;
+    /** number of timed full collections */
+    private static final int FULL_COLLECTIONS = 5;
+    /** number of garbage arrays kept reachable at once, so the garbage is really allocated */
+    private static final int GARBAGE_KEPT = 1 << 10;
+    /** the last garbage arrays allocated */
+    private static final byte[][] garbage = new byte[GARBAGE_KEPT][];
+
+    /**
+     * Application main method
+     * @param args optional recursion depth of the fractal held
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEPTH;
+        GenerateFractal generator = new GenerateFractal();
+        generator.setData(depth, RATIO, Color.GREEN, Color.RED);
+        System.out.printf("depth %d, ratio %d, %d circles%n", depth, RATIO, generator.predictCircleCount());
+
+        ArrayList<Circle> onHeap = generator.getData();
+        // the generator keeps the circles as primitives too, only the list is to be held
+        generator = null;
+        measure("ArrayList<Circle>", onHeap.size());
+        onHeap = null;
+        generator = new GenerateFractal();
+        generator.setData(depth, RATIO, Color.GREEN, Color.RED);
+
+        long directBefore = directMemory();
+        OffHeapCircleStore offHeap = generator.getOffHeapData();
+        measure("OffHeapCircleStore", offHeap.size());
+        long held = directMemory() - directBefore;
+        offHeap.close();
+        long left = directMemory() - directBefore;
+        System.out.printf("close returned %d of %d MB of direct memory%n", (held - left) >> 20, held >> 20);
+        if (left > 0) {
+            throw new IllegalStateException(left + " bytes of direct memory still held after close");
+        }
+        try {
+            offHeap.getX(0);
+            throw new IllegalStateException("closed store was read");
+        } catch (IllegalStateException e) {
+            if (!"store is closed".equals(e.getMessage())) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Times the collections caused by short lived garbage and full collections while
+     * the circles are held, and prints them
+     *
+     * @param name description of the circles held
+     * @param count number of circles held
+     */
+    private static void measure(String name, long count) {
+        System.gc();
+        long collections = collectionCount();
+        long collectionMillis = collectionMillis();
+        long start = System.nanoTime();
+        int slot = 0;
+        for (long allocated = 0; allocated < GARBAGE_BYTES; allocated += GARBAGE_CHUNK) {
+            garbage[slot] = new byte[GARBAGE_CHUNK];
+            slot = (slot + 1) & (GARBAGE_KEPT - 1);
+        }
+        long churnMillis = (System.nanoTime() - start) / 1000000;
+        collections = collectionCount() - collections;
+        collectionMillis = collectionMillis() - collectionMillis;
+
+        long[] fullNanos = new long[FULL_COLLECTIONS];
+        for (int i = 0; i < FULL_COLLECTIONS; i++) {
+            long fullStart = System.nanoTime();
+            System.gc();
+            fullNanos[i] = System.nanoTime() - fullStart;
+        }
+        Arrays.sort(fullNanos);
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%-18s %d circles, heap %d MB: %d collections of garbage took %d of %d ms, full collection median %.1f ms, worst %.1f ms%n",
+                name, count, (runtime.totalMemory() - runtime.freeMemory()) >> 20, collections, collectionMillis, churnMillis,
+                fullNanos[FULL_COLLECTIONS / 2] / 1e6, fullNanos[FULL_COLLECTIONS - 1] / 1e6);
+    }
+
+    /**
+     * Returns the number of collections so far, over all collectors
+     *
+     * @return number of collections
+     */
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time spent collecting so far, over all collectors
+     *
+     * @return milliseconds spent collecting
+     */
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Returns the direct memory in use
+     *
+     * @return bytes of direct buffers allocated and not yet freed
+     */
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
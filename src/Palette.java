@@ -0,0 +1,116 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Small table of colors shared by many circles, each circle keeps the index of its
+ * color instead of a Color. Changing an entry recolors every circle using it at once
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class Palette {
+
+    /** colors of the palette, by index */
+    private final Color[] colors;
+    /** colors of the palette as ARGB values, by index */
+    private final int[] argbs;
+
+    /**
+     * pre : colors is not empty and has at most 256 entries (throws IllegalArgumentException if not)
+     * post: constructs a palette holding the given colors, the first one at index 0.
+     *       A null color is one not chosen yet, its ARGB value is 0
+     *
+     * @param colors colors of the palette, entries may be null
+     */
+    public Palette(Color... colors) {
+        if (colors.length == 0 || colors.length > 256) {
+            throw new IllegalArgumentException("colors: " + colors.length);
+        }
+        this.colors = colors.clone();
+        argbs = new int[colors.length];
+        for (int index = 0; index < colors.length; index++) {
+            argbs[index] = rgb(colors[index]);
+        }
+    }
+
+    /**
+     * post: returns the number of colors in the palette
+     *
+     * @return the number of colors in the palette
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the color at the given index
+     *
+     * @param index index of the color
+     * @return the color
+     */
+    public synchronized Color getColor(int index) {
+        return colors[index];
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: returns the color at the given index as an ARGB value
+     *
+     * @param index index of the color
+     * @return the color as an ARGB value
+     */
+    public synchronized int getRGB(int index) {
+        return argbs[index];
+    }
+
+    /**
+     * pre : 0 &lt;= index &lt; size() (throws IndexOutOfBoundsException if not)
+     * post: replaces the color at the given index, recoloring every circle using it
+     *
+     * @param index index of the color
+     * @param color the new color, null for a color not chosen yet
+     */
+    public synchronized void setColor(int index, Color color) {
+        colors[index] = color;
+        argbs[index] = rgb(color);
+    }
+
+    /**
+     * Copies the colors of the palette as ARGB values, for drawing many circles
+     * without looking their colors up one by one
+     *
+     * @return an array of the ARGB values, by index
+     */
+    public synchronized int[] toRGBArray() {
+        return argbs.clone();
+    }
+
+    /**
+     * Creates a palette with the same colors which changes independently of this one
+     *
+     * @return a copy of the palette
+     */
+    public synchronized Palette copy() {
+        return new Palette(colors);
+    }
+
+    /**
+     * Returns the ARGB value of a color, 0 for a color not chosen yet
+     *
+     * @param color the color, may be null
+     * @return the ARGB value of the color
+     */
+    private static int rgb(Color color) {
+        return color == null ? 0 : color.getRGB();
+    }
+
+    /**
+     * creates a comma-separated, bracketed version of the palette
+     *
+     * @return a string representation of the palette
+     */
+    public synchronized String toString() {
+        return "Palette" + Arrays.toString(colors);
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Regroups circles drawn one after the other into runs of one palette entry each,
+ * so the color is set once per run instead of wherever it changes in the drawing
+ * order. A circle may only move ahead of circles of its own color: it joins the
+ * first run of its color after every run holding an earlier circle of another color
+ * that it may overlap. Circles of one color give the same pixels in any order, so
+ * the picture stays exactly the same. Overlaps are tracked on a grid of cells of
+ * CELL_SIZE pixels, two circles may overlap if their bounding boxes share a cell.
+ * Where the colors overlap so densely that regrouping would not halve the runs, the
+ * drawing order is kept, reordering the circles then costs more than the colors it saves
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+final class PaletteGroups {
+
+    /** width and height in pixels of the cells overlaps are tracked in */
+    private static final int CELL_SIZE = 8;
+
+    /** index in the entries of the first circle of each run, and the end of the last run */
+    private final int[] starts;
+    /** palette index of the circles of each run */
+    private final int[] colorIndexes;
+    /** number of runs */
+    private final int count;
+
+    /**
+     * Constructor for the runs found by group
+     *
+     * @param starts index of the first circle of each run, and the end of the last run
+     * @param colorIndexes palette index of each run
+     * @param count number of runs
+     */
+    private PaletteGroups(int[] starts, int[] colorIndexes, int count) {
+        this.starts = starts;
+        this.colorIndexes = colorIndexes;
+        this.count = count;
+    }
+
+    /**
+     * Reorders the entries from index from up to but not including to into runs of
+     * one palette entry, keeping the drawing order within each run. Only the pixels
+     * of the region matter, the circles are drawn clipped to it
+     *
+     * @param circles the circles
+     * @param entries entries naming the circles in drawing order, reordered in place
+     * @param from index of the first entry
+     * @param to index after the last entry
+     * @param circleOf maps an entry to the index of its circle
+     * @param left x coordinate of the region the circles are drawn into
+     * @param top y coordinate of the region
+     * @param width width of the region
+     * @param height height of the region
+     * @return the runs of the reordered entries
+     */
+    static PaletteGroups group(CircleBuffer circles, int[] entries, int from, int to, IntUnaryOperator circleOf,
+                               int left, int top, int width, int height) {
+        int colors = circles.getPalette().size();
+        int columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        int rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        int cells = columns * rows;
+        // one past the last run of each color touching each cell, 0 if none
+        int[] cellRuns = new int[colors * cells];
+        int[] runOf = new int[to - from];
+        int[] runColors = new int[8];
+        int runCount = 0;
+        int changes = 0;
+        int previous = -1;
+        for (int i = from; i < to; i++) {
+            int circle = circleOf.applyAsInt(entries[i]);
+            int color = circles.getColorIndex(circle);
+            if (color != previous) {
+                changes++;
+                previous = color;
+            }
+            // the box of the pixels fillOval may touch, with a pixel to spare
+            long x = (long) circles.getX(circle) - left;
+            long y = (long) circles.getY(circle) - top;
+            long diameter = (long) circles.getDiameter(circle);
+            int firstColumn = (int) Math.max(0, Math.min(columns - 1, Math.floorDiv(x - 1, CELL_SIZE)));
+            int lastColumn = (int) Math.max(0, Math.min(columns - 1, Math.floorDiv(x + diameter + 1, CELL_SIZE)));
+            int firstRow = (int) Math.max(0, Math.min(rows - 1, Math.floorDiv(y - 1, CELL_SIZE)));
+            int lastRow = (int) Math.max(0, Math.min(rows - 1, Math.floorDiv(y + diameter + 1, CELL_SIZE)));
+
+            int after = 0;
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = row * columns + column;
+                    for (int other = 0; other < colors; other++) {
+                        if (other != color) {
+                            after = Math.max(after, cellRuns[other * cells + cell]);
+                        }
+                    }
+                }
+            }
+            int run = after;
+            while (run < runCount && runColors[run] != color) {
+                run++;
+            }
+            if (run == runCount) {
+                if (runCount == runColors.length) {
+                    runColors = Arrays.copyOf(runColors, runCount * 2);
+                }
+                runColors[runCount++] = color;
+            }
+            runOf[i - from] = run;
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = color * cells + row * columns + column;
+                    cellRuns[cell] = Math.max(cellRuns[cell], run + 1);
+                }
+            }
+        }
+
+        if (runCount * 2 > changes) {
+            // the circles overlap too much for regrouping to pay, keep the runs of the drawing order
+            return inOrder(circles, entries, from, to, circleOf, changes);
+        }
+
+        // lay the runs out one after the other, keeping the order within each
+        int[] starts = new int[runCount + 1];
+        for (int i = 0; i < runOf.length; i++) {
+            starts[runOf[i] + 1]++;
+        }
+        for (int run = 0; run < runCount; run++) {
+            starts[run + 1] += starts[run];
+        }
+        int[] next = Arrays.copyOf(starts, runCount);
+        int[] sorted = new int[runOf.length];
+        for (int i = 0; i < runOf.length; i++) {
+            sorted[next[runOf[i]]++] = entries[from + i];
+        }
+        System.arraycopy(sorted, 0, entries, from, sorted.length);
+        for (int run = 0; run <= runCount; run++) {
+            starts[run] += from;
+        }
+        return new PaletteGroups(starts, runColors, runCount);
+    }
+
+    /**
+     * Finds the runs of one palette entry in the drawing order, leaving the entries alone
+     *
+     * @param circles the circles
+     * @param entries entries naming the circles in drawing order
+     * @param from index of the first entry
+     * @param to index after the last entry
+     * @param circleOf maps an entry to the index of its circle
+     * @param count number of runs
+     * @return the runs of the entries
+     */
+    private static PaletteGroups inOrder(CircleBuffer circles, int[] entries, int from, int to, IntUnaryOperator circleOf, int count) {
+        int[] starts = new int[count + 1];
+        int[] colorIndexes = new int[count];
+        int run = -1;
+        for (int i = from; i < to; i++) {
+            int color = circles.getColorIndex(circleOf.applyAsInt(entries[i]));
+            if (run < 0 || color != colorIndexes[run]) {
+                run++;
+                starts[run] = i;
+                colorIndexes[run] = color;
+            }
+        }
+        starts[count] = to;
+        return new PaletteGroups(starts, colorIndexes, count);
+    }
+
+    /**
+     * post: returns the number of runs
+     *
+     * @return the number of runs
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Retrieves the index of the first entry of a run
+     *
+     * @param run index of the run
+     * @return index of its first entry
+     */
+    int start(int run) {
+        return starts[run];
+    }
+
+    /**
+     * Retrieves the index after the last entry of a run
+     *
+     * @param run index of the run
+     * @return index after its last entry
+     */
+    int end(int run) {
+        return starts[run + 1];
+    }
+
+    /**
+     * Retrieves the palette index of the circles of a run
+     *
+     * @param run index of the run
+     * @return palette index of the run
+     */
+    int getColorIndex(int run) {
+        return colorIndexes[run];
+    }
+}
@@ -0,0 +1,265 @@
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the circles of a buffer answering which circles lie under a
+ * point or inside a rectangle without scanning every circle. Each cell lists the
+ * circles whose bounding box overlaps it, circles much larger than a cell are kept
+ * in a separate list which every query scans, since they are few
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class SpatialIndex {
+
+    /** circles spanning more cells than this across are kept in the large list */
+    private static final int LARGE_CELLS = 8;
+    /** largest number of cells along one side of the grid */
+    private static final int MAX_CELLS = 1024;
+
+    /** the indexed circles */
+    private final CircleBuffer circles;
+    /** x coordinate of the left edge of the grid */
+    private final double minX;
+    /** y coordinate of the top edge of the grid */
+    private final double minY;
+    /** width and height of a cell */
+    private final double cellSize;
+    /** number of cell columns */
+    private final int columns;
+    /** number of cell rows */
+    private final int rows;
+    /** first entry of each cell in cellCircles, row by row, with one extra end entry */
+    private final int[] cellStart;
+    /** circles of every cell one after the other, by index within a cell */
+    private final int[] cellCircles;
+    /** circles too large for the grid, by index */
+    private final int[] largeCircles;
+
+    /**
+     * Constructor, indexes the circles currently in the buffer. Circles added to the
+     * buffer afterwards are not indexed
+     *
+     * @param circles the circles to index
+     */
+    public SpatialIndex(CircleBuffer circles) {
+        this.circles = circles;
+        int size = circles.size();
+        double left = Double.POSITIVE_INFINITY;
+        double top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            left = Math.min(left, circles.getX(i));
+            top = Math.min(top, circles.getY(i));
+            right = Math.max(right, circles.getX(i) + circles.getDiameter(i));
+            bottom = Math.max(bottom, circles.getY(i) + circles.getDiameter(i));
+        }
+        if (size == 0) {
+            left = 0;
+            top = 0;
+            right = 1;
+            bottom = 1;
+        }
+        minX = left;
+        minY = top;
+        // aim for a few circles per cell
+        double extent = Math.max(right - left, bottom - top);
+        int side = (int) Math.min(MAX_CELLS, Math.max(1, Math.ceil(Math.sqrt(size / 4.0))));
+        cellSize = Math.max(extent / side, Double.MIN_NORMAL);
+        columns = Math.max(1, (int) Math.ceil((right - left) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((bottom - top) / cellSize));
+
+        int cellCount = columns * rows;
+        int[] start = new int[cellCount + 1];
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isLarge(i)) {
+                largeCount++;
+                continue;
+            }
+            for (int row = row(circles.getY(i)); row <= row(circles.getY(i) + circles.getDiameter(i)); row++) {
+                for (int column = column(circles.getX(i)); column <= column(circles.getX(i) + circles.getDiameter(i)); column++) {
+                    start[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            start[cell + 1] += start[cell];
+        }
+        int[] entries = new int[start[cellCount]];
+        int[] next = Arrays.copyOf(start, cellCount);
+        int[] large = new int[largeCount];
+        largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isLarge(i)) {
+                large[largeCount++] = i;
+                continue;
+            }
+            for (int row = row(circles.getY(i)); row <= row(circles.getY(i) + circles.getDiameter(i)); row++) {
+                for (int column = column(circles.getX(i)); column <= column(circles.getX(i) + circles.getDiameter(i)); column++) {
+                    entries[next[row * columns + column]++] = i;
+                }
+            }
+        }
+        cellStart = start;
+        cellCircles = entries;
+        largeCircles = large;
+    }
+
+    /**
+     * Retrieves the indexed circles
+     *
+     * @return the buffer the index was built from
+     */
+    public CircleBuffer getCircles() {
+        return circles;
+    }
+
+    /**
+     * Finds the circle drawn on top at a point, the last one in the drawing order containing it
+     *
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return index of the circle in the buffer, -1 if no circle contains the point
+     */
+    public int circleAt(double x, double y) {
+        int found = -1;
+        int foundRank = -1;
+        for (int circle : largeCircles) {
+            if (circles.drawRank(circle) > foundRank && contains(circle, x, y)) {
+                found = circle;
+                foundRank = circles.drawRank(circle);
+            }
+        }
+        if (x >= minX && y >= minY && x < minX + columns * cellSize && y < minY + rows * cellSize) {
+            int cell = row(y) * columns + column(x);
+            for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                int circle = cellCircles[i];
+                if (circles.drawRank(circle) > foundRank && contains(circle, x, y)) {
+                    found = circle;
+                    foundRank = circles.drawRank(circle);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds every circle overlapping a rectangle
+     *
+     * @param area the rectangle
+     * @return indexes of the circles in the buffer, in increasing order
+     */
+    public int[] circlesIn(Rectangle2D area) {
+        IntArrayList found = new IntArrayList();
+        for (int circle : largeCircles) {
+            if (overlaps(circle, area)) {
+                found.add(circle);
+            }
+        }
+        int firstRow = row(area.getMinY());
+        int lastRow = row(area.getMaxY());
+        int firstColumn = column(area.getMinX());
+        int lastColumn = column(area.getMaxX());
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (overlaps(cellCircles[i], area)) {
+                        found.add(cellCircles[i]);
+                    }
+                }
+            }
+        }
+        // a circle overlapping several cells was found once per cell
+        int[] sorted = found.elementData();
+        int count = found.size();
+        Arrays.sort(sorted, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    /**
+     * Counts the circles of one color overlapping a rectangle
+     *
+     * @param area the rectangle
+     * @param colorIndex palette index of the circles to count, CircleBuffer.PAD or CircleBuffer.PEAR
+     * @return number of circles of that color in the rectangle
+     */
+    public int count(Rectangle2D area, byte colorIndex) {
+        int count = 0;
+        for (int circle : circlesIn(area)) {
+            if (circles.getColorIndex(circle) == colorIndex) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether a circle is too large to be listed in the cells it overlaps
+     *
+     * @param circle index of the circle in the buffer
+     * @return true if the circle belongs to the large list
+     */
+    private boolean isLarge(int circle) {
+        return circles.getDiameter(circle) > LARGE_CELLS * cellSize;
+    }
+
+    /**
+     * Returns whether a circle contains a point
+     *
+     * @param circle index of the circle in the buffer
+     * @param x x coordinate of the point
+     * @param y y coordinate of the point
+     * @return true if the point is inside the circle
+     */
+    private boolean contains(int circle, double x, double y) {
+        double radius = circles.getDiameter(circle) / 2;
+        double dx = x - (circles.getX(circle) + radius);
+        double dy = y - (circles.getY(circle) + radius);
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    /**
+     * Returns whether a circle overlaps a rectangle
+     *
+     * @param circle index of the circle in the buffer
+     * @param area the rectangle
+     * @return true if some point of the circle is inside the rectangle
+     */
+    private boolean overlaps(int circle, Rectangle2D area) {
+        double radius = circles.getDiameter(circle) / 2;
+        double x = circles.getX(circle) + radius;
+        double y = circles.getY(circle) + radius;
+        double dx = Math.max(0, Math.max(area.getMinX() - x, x - area.getMaxX()));
+        double dy = Math.max(0, Math.max(area.getMinY() - y, y - area.getMaxY()));
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    /**
+     * Returns the grid column of an x coordinate, clamped to the grid
+     *
+     * @param x the x coordinate
+     * @return column of the grid
+     */
+    private int column(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellSize)));
+    }
+
+    /**
+     * Returns the grid row of a y coordinate, clamped to the grid
+     *
+     * @param y the y coordinate
+     * @return row of the grid
+     */
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellSize)));
+    }
+}
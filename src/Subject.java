@@ -1,4 +1,5 @@
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Interface for the subject in observer model
@@ -43,4 +44,53 @@ public interface Subject {
      * @return an array list of circle objects
      */
     ArrayList<Circle> getData();
+
+    /**
+     * Retrieves the colors of the data, the circles of getData are colored by their
+     * index in this palette. Changing the colors later leaves the returned palette alone
+     *
+     * @return a palette indexed by CircleBuffer.PAD and CircleBuffer.PEAR
+     */
+    Palette getPalette();
+
+    /**
+     * Retrieves the data from the subject without creating a Circle object per circle
+     *
+     * @return a buffer holding the circles as primitives
+     */
+    CircleBuffer getBuffer();
+
+    /**
+     * Retrieves the part of the data that can be seen through the viewport
+     *
+     * @param viewport visible rectangle in the coordinates of the drawing, null for all of it
+     * @param maxDepth largest recursion depth to include, for quick coarse previews
+     * @return a buffer holding the visible circles
+     */
+    CircleBuffer getBuffer(Rectangle2D viewport, int maxDepth);
+
+    /**
+     * Retrieves the current data as a source of views, for reading it on another
+     * thread. Data set afterwards leaves the source alone
+     *
+     * @return a source of views of the current data
+     */
+    ViewSource getViewSource();
+
+    /**
+     * Retrieves the data from the subject as a store outside the Java heap, for
+     * subjects keeping their circles there, so they can be drawn without copying
+     * them all onto the heap
+     *
+     * @return the store holding the circles, null if the subject keeps them on the heap
+     */
+    OffHeapCircleStore getOffHeapCircles();
+
+    /**
+     * Retrieves a spatial index over the circles of getBuffer, reused until the data
+     * changes
+     *
+     * @return an index over the current circles, null if the subject keeps them off the heap
+     */
+    SpatialIndex getSpatialIndex();
 }
@@ -0,0 +1,91 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Checks that drawing through the tiles of a TiledRasterizer gives the same image
+ * as drawing the buffer in one pass with Graphics. For random depths, ratios, zooms,
+ * image and tile sizes a view of the fractal is drawn both ways and the images must
+ * be identical, also with translucent colors, so no oval crossing a tile border
+ * gains or loses a pixel there. The batched drawing of the buffer and of the tiles
+ * must give the same image too. Throws IllegalStateException on the first differing pixel
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class TileSeamCheck {
+
+    /** default number of random cases checked */
+    private static final int CASES = 60;
+
+    /**
+     * Application main method
+     * @param args optional number of cases and random seed
+     */
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : CASES;
+        Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        long drawNanos = 0;
+        long tiledNanos = 0;
+        for (int i = 0; i < cases; i++) {
+            int depth = 2 + random.nextInt(16);
+            int ratio = 40 + random.nextInt(46);
+            boolean translucent = random.nextInt(4) == 0;
+            GenerateFractal generator = new GenerateFractal();
+            generator.setData(depth, ratio, translucent ? new Color(0, 255, 0, 140) : Color.GREEN,
+                    translucent ? new Color(255, 0, 0, 90) : Color.RED);
+            int width = 100 + random.nextInt(900);
+            int height = 100 + random.nextInt(800);
+            int tileSize = random.nextBoolean() ? TiledRasterizer.DEFAULT_TILE_SIZE : 16 + random.nextInt(200);
+            CircleBuffer circles = generator.getBuffer();
+            double zoom = 1;
+            if (i % 2 == 1) {
+                zoom = 1 + random.nextInt(20) * random.nextDouble();
+                circles = circles.transform(zoom, random.nextInt(900) - 100, random.nextInt(800) - 100, width, height);
+            }
+            String name = "depth " + depth + ", ratio " + ratio + ", zoom " + zoom + ", image " + width + "x" + height
+                    + ", tiles " + tileSize + (translucent ? ", translucent" : "");
+
+            long start = System.nanoTime();
+            BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = expected.createGraphics();
+            circles.draw(g);
+            g.dispose();
+            long middle = System.nanoTime();
+            BufferedImage actual = new TiledRasterizer(tileSize).rasterize(circles, width, height);
+            drawNanos += middle - start;
+            tiledNanos += System.nanoTime() - middle;
+            compare(expected, actual, name);
+
+            BufferedImage batched = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            g = batched.createGraphics();
+            circles.drawBatched(g);
+            g.dispose();
+            compare(expected, batched, name + ", drawBatched");
+            TiledRasterizer batchedTiles = new TiledRasterizer(tileSize);
+            batchedTiles.setBatched(true);
+            compare(expected, batchedTiles.rasterize(circles, width, height), name + ", batched tiles");
+        }
+        System.out.printf("%d cases identical, batched too, one pass %d ms, tiled %d ms%n", cases, drawNanos / 1000000, tiledNanos / 1000000);
+    }
+
+    /**
+     * pre : both images have the same pixels (throws IllegalStateException if not)
+     * post: returns normally
+     *
+     * @param expected image drawn in one pass
+     * @param actual image drawn through the tiles
+     * @param name description of the case
+     */
+    private static void compare(BufferedImage expected, BufferedImage actual, String name) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    throw new IllegalStateException(name + ": pixel (" + x + ", " + y + ") is "
+                            + Integer.toHexString(actual.getRGB(x, y)) + ", expected " + Integer.toHexString(expected.getRGB(x, y)));
+                }
+            }
+        }
+    }
+}
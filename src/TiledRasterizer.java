@@ -0,0 +1,382 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Draws a buffer of circles into an image by splitting the image into square tiles
+ * and drawing the tiles in parallel. Each circle is drawn in every tile its bounding
+ * box overlaps, in the drawing order of the buffer, so the image is the same as
+ * drawing the buffer in one pass. fillOval under a tile's clip splits the edge of
+ * an oval differently than without it, and an oval crossing a tile border could
+ * gain or lose a pixel there, whether the clip is set or the Graphics translated
+ * to the tile. So an oval crossing a tile border is filled once, alone, into a
+ * scratch image the size of the image, and each tile fills the rows of pixels it
+ * covered there. Ovals inside one tile are filled directly, at the edge of the image
+ * the clip of the tile is the same as the image's
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class TiledRasterizer {
+
+    /** default width and height of a tile in pixels */
+    public static final int DEFAULT_TILE_SIZE = 128;
+    /** number of circles of an off-heap store copied onto the heap and drawn at once */
+    public static final int BATCH_CIRCLES = 1 << 20;
+
+    /** width and height of a tile in pixels */
+    private final int tileSize;
+    /** whether the tiles are filled by the DiscRasterizer instead of Graphics.fillOval */
+    private final boolean softwareFill;
+    /** whether the Graphics fill draws the runs of each tile batched, see CircleBuffer.drawBatched */
+    private volatile boolean batched;
+    /** cleared scratch images the crossing circles are filled into, kept for the next image of the same size */
+    private final ConcurrentLinkedQueue<BufferedImage> scratches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor, uses tiles of the default size
+     */
+    public TiledRasterizer() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * pre : tileSize &gt;= 1 (throws IllegalArgumentException if not)
+     * post: constructs a rasterizer using tiles of the given size
+     *
+     * @param tileSize width and height of a tile in pixels
+     */
+    public TiledRasterizer(int tileSize) {
+        this(tileSize, false);
+    }
+
+    /**
+     * pre : tileSize &gt;= 1 (throws IllegalArgumentException if not)
+     * post: constructs a rasterizer using tiles of the given size, filling them with
+     * the DiscRasterizer when softwareFill is true. The DiscRasterizer needs an
+     * image of TYPE_INT_ARGB or TYPE_INT_RGB and can differ from fillOval by a pixel
+     * or two at the edge of a disc, see DiscRasterizer
+     *
+     * @param tileSize width and height of a tile in pixels
+     * @param softwareFill true to fill the discs directly into the pixels of the image
+     */
+    public TiledRasterizer(int tileSize, boolean softwareFill) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        this.softwareFill = softwareFill;
+    }
+
+    /**
+     * Sets whether the tiles filled through Graphics fill the circles inside one tile
+     * batched, several circles of a run of one color as one shape, see
+     * CircleBuffer.drawBatched. The picture is the same either way. This only applies
+     * when the DiscRasterizer is not used. It is off by default, as the tiles already
+     * set the color once per run and batching them costs about as much as it saves
+     *
+     * @param batched true to draw the tiles batched by color
+     */
+    public void setBatched(boolean batched) {
+        this.batched = batched;
+    }
+
+    /**
+     * Returns whether the tiles filled through Graphics are drawn batched by color
+     *
+     * @return true if the tiles are drawn batched by color
+     */
+    public boolean isBatched() {
+        return batched;
+    }
+
+    /**
+     * Draws the circles into a new transparent image
+     *
+     * @param circles the circles to draw
+     * @param width width of the image
+     * @param height height of the image
+     * @return the drawn image
+     */
+    public BufferedImage rasterize(CircleBuffer circles, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        rasterize(circles, image);
+        return image;
+    }
+
+    /**
+     * Draws the circles over the content of the image
+     *
+     * @param circles the circles to draw
+     * @param image the image to draw into
+     */
+    public void rasterize(CircleBuffer circles, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        int tileCount = columns * rows;
+        if (tileCount == 0) {
+            return;
+        }
+
+        // count the circles of each tile, then lay the tiles out one after the other
+        int[] tileStart = new int[tileCount + 1];
+        IntArrayList crossing = new IntArrayList();
+        int[] last = {-1};
+        forEachTile(circles, columns, rows, (circle, tile) -> {
+            tileStart[tile + 1]++;
+            if (circle != last[0]) {
+                last[0] = circle;
+                if (crosses(circles, circle)) {
+                    crossing.add(circle);
+                }
+            }
+        });
+        for (int tile = 0; tile < tileCount; tile++) {
+            tileStart[tile + 1] += tileStart[tile];
+        }
+        // a crossing circle is listed as -1 - its position in crossing
+        int[] tileCircles = new int[tileStart[tileCount]];
+        int[] next = new int[tileCount];
+        int[] entry = {-1, 0};
+        last[0] = -1;
+        forEachTile(circles, columns, rows, (circle, tile) -> {
+            if (circle != last[0]) {
+                last[0] = circle;
+                entry[0] = crosses(circles, circle) ? -1 - entry[1]++ : circle;
+            }
+            tileCircles[tileStart[tile] + next[tile]++] = entry[0];
+        });
+
+        Palette palette = circles.getPalette().copy();
+        if (softwareFill) {
+            int[] argbs = palette.toRGBArray();
+            DiscRasterizer discs = new DiscRasterizer(image);
+            IntStream.range(0, tileCount).parallel().forEach(tile -> {
+                int tileX = (tile % columns) * tileSize;
+                int tileY = (tile / columns) * tileSize;
+                for (int i = tileStart[tile]; i < tileStart[tile + 1]; i++) {
+                    int circle = tileCircles[i] < 0 ? crossing.get(-1 - tileCircles[i]) : tileCircles[i];
+                    discs.fillDisc((int) circles.getX(circle), (int) circles.getY(circle), (int) circles.getDiameter(circle),
+                            argbs[circles.getColorIndex(circle)], tileX, tileY, tileSize, tileSize);
+                }
+            });
+            return;
+        }
+        boolean byColor = batched;
+        int[][] spans = spansOf(circles, crossing, palette, width, height);
+        IntStream.range(0, tileCount).parallel().forEach(tile -> {
+            int tileX = (tile % columns) * tileSize;
+            int tileY = (tile / columns) * tileSize;
+            Graphics2D g = image.createGraphics();
+            g.clipRect(tileX, tileY, tileSize, tileSize);
+            // a circle only moves ahead of circles of its own color, so the pixels stay the same
+            PaletteGroups runs = PaletteGroups.group(circles, tileCircles, tileStart[tile], tileStart[tile + 1],
+                    listed -> listed < 0 ? crossing.get(-1 - listed) : listed, tileX, tileY, tileSize, tileSize);
+            for (int run = 0; run < runs.size(); run++) {
+                g.setColor(palette.getColor(runs.getColorIndex(run)));
+                int inside = runs.start(run);
+                for (int i = runs.start(run); i < runs.end(run); i++) {
+                    if (tileCircles[i] < 0) {
+                        fillSpans(g, spans[-1 - tileCircles[i]], tileX, tileY);
+                        continue;
+                    }
+                    if (byColor) {
+                        // the circles of a run have one color, so their order does not matter
+                        tileCircles[inside++] = tileCircles[i];
+                        continue;
+                    }
+                    int circle = tileCircles[i];
+                    int diameter = (int) circles.getDiameter(circle);
+                    g.fillOval((int) circles.getX(circle), (int) circles.getY(circle), diameter, diameter);
+                }
+                if (byColor) {
+                    circles.drawBatched(g, tileCircles, runs.start(run), inside);
+                }
+            }
+            g.dispose();
+        });
+    }
+
+    /**
+     * Returns whether the bounding box of a circle crosses a tile border, such a
+     * circle is drawn from its spans
+     *
+     * @param circles the circles
+     * @param circle index of the circle
+     * @return true if the circle does not lie inside one tile
+     */
+    private boolean crosses(CircleBuffer circles, int circle) {
+        long x = (int) circles.getX(circle);
+        long y = (int) circles.getY(circle);
+        int diameter = (int) circles.getDiameter(circle);
+        return Math.floorDiv(x, tileSize) != Math.floorDiv(x + diameter, tileSize)
+                || Math.floorDiv(y, tileSize) != Math.floorDiv(y + diameter, tileSize);
+    }
+
+    /**
+     * Finds the pixels fillOval covers for each crossing circle in an image of the
+     * given size. Each circle is filled alone into a scratch image of that size, with
+     * the same device clip as the image, and read back row by row, the rows of an
+     * oval being single runs of pixels. A translucent color covers other pixels than
+     * an opaque one, so the circle is filled with the alpha of its color. The circles
+     * are split between the processors, the scratch images are kept for the next call
+     *
+     * @param circles the circles
+     * @param crossing indexes of the circles to find the pixels of
+     * @param palette colors the circles are drawn with
+     * @param width width of the image
+     * @param height height of the image
+     * @return for each crossing circle its first row followed by the start and end, exclusive, of each of its rows
+     */
+    private int[][] spansOf(CircleBuffer circles, IntArrayList crossing, Palette palette, int width, int height) {
+        int[][] spans = new int[crossing.size()][];
+        if (spans.length == 0) {
+            return spans;
+        }
+        int parts = Math.min(spans.length, Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, parts).parallel().forEach(part -> {
+            BufferedImage scratch = scratches.poll();
+            while (scratch != null && (scratch.getWidth() != width || scratch.getHeight() != height)) {
+                scratch = scratches.poll();
+            }
+            if (scratch == null) {
+                scratch = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            int[] pixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+            Graphics2D g = scratch.createGraphics();
+            Color[] colors = new Color[palette.size()];
+            for (int color = 0; color < colors.length; color++) {
+                colors[color] = new Color(0xffffff | palette.getRGB(color) & 0xff000000, true);
+            }
+            for (int i = (int) ((long) spans.length * part / parts); i < (long) spans.length * (part + 1) / parts; i++) {
+                int circle = crossing.get(i);
+                g.setColor(colors[circles.getColorIndex(circle)]);
+                int x = (int) circles.getX(circle);
+                int y = (int) circles.getY(circle);
+                int diameter = (int) circles.getDiameter(circle);
+                g.fillOval(x, y, diameter, diameter);
+                int top = Math.min(height, Math.max(0, y));
+                int bottom = (int) Math.max(top, Math.min(height, (long) y + diameter));
+                int left = Math.min(width, Math.max(0, x));
+                int right = (int) Math.max(left, Math.min(width, (long) x + diameter));
+                int[] span = new int[1 + 2 * (bottom - top)];
+                span[0] = top;
+                for (int row = top; row < bottom; row++) {
+                    int offset = row * width;
+                    int start = left;
+                    while (start < right && pixels[offset + start] == 0) {
+                        start++;
+                    }
+                    int end = right;
+                    while (end > start && pixels[offset + end - 1] == 0) {
+                        end--;
+                    }
+                    Arrays.fill(pixels, offset + start, offset + end, 0);
+                    span[1 + 2 * (row - top)] = start;
+                    span[2 + 2 * (row - top)] = end;
+                }
+                spans[i] = span;
+            }
+            g.dispose();
+            scratches.offer(scratch);
+        });
+        return spans;
+    }
+
+    /**
+     * Fills the pixels of a crossing circle inside one tile, rows with the same run
+     * of pixels in the tile are filled as one rectangle
+     *
+     * @param g graphics clipped to the tile
+     * @param span first row of the circle followed by the start and end of each row
+     * @param tileX x coordinate of the left edge of the tile
+     * @param tileY y coordinate of the top edge of the tile
+     */
+    private void fillSpans(Graphics2D g, int[] span, int tileX, int tileY) {
+        int first = Math.max(span[0], tileY);
+        int last = Math.min(span[0] + (span.length - 1) / 2, tileY + tileSize);
+        int runStart = first;
+        int runFrom = 0;
+        int runTo = 0;
+        for (int row = first; row <= last; row++) {
+            int from = 0;
+            int to = 0;
+            if (row < last) {
+                from = Math.max(tileX, span[1 + 2 * (row - span[0])]);
+                to = Math.min(tileX + tileSize, span[2 + 2 * (row - span[0])]);
+                if (from >= to) {
+                    from = 0;
+                    to = 0;
+                }
+            }
+            if (row == last || from != runFrom || to != runTo) {
+                if (runFrom < runTo) {
+                    g.fillRect(runFrom, runStart, runTo - runFrom, row - runStart);
+                }
+                runStart = row;
+                runFrom = from;
+                runTo = to;
+            }
+        }
+    }
+
+    /**
+     * Draws the circles of an off-heap store over the content of the image. The
+     * circles are copied onto the heap BATCH_CIRCLES at a time and each batch is
+     * drawn over the previous ones, so the image is the same as drawing them in one pass
+     *
+     * @param circles the circles to draw
+     * @param image the image to draw into
+     */
+    public void rasterize(OffHeapCircleStore circles, BufferedImage image) {
+        for (long from = 0; from < circles.size(); from += BATCH_CIRCLES) {
+            rasterize(circles.toBuffer(from, BATCH_CIRCLES), image);
+        }
+    }
+
+    /**
+     * Hands every pair of circle and tile overlapped by the circle's bounding box
+     * to the visitor, in the drawing order of the buffer
+     *
+     * @param circles the circles to bin
+     * @param columns number of tile columns
+     * @param rows number of tile rows
+     * @param visitor receives the circle index and tile index
+     */
+    private void forEachTile(CircleBuffer circles, int columns, int rows, TileVisitor visitor) {
+        circles.forEachInDrawingOrder(circle -> {
+            int x = (int) circles.getX(circle);
+            int y = (int) circles.getY(circle);
+            int diameter = (int) circles.getDiameter(circle);
+            int firstColumn = Math.max(0, Math.floorDiv(x, tileSize));
+            int lastColumn = (int) Math.min(columns - 1, Math.floorDiv((long) x + diameter, tileSize));
+            int firstRow = Math.max(0, Math.floorDiv(y, tileSize));
+            int lastRow = (int) Math.min(rows - 1, Math.floorDiv((long) y + diameter, tileSize));
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    visitor.visit(circle, row * columns + column);
+                }
+            }
+        });
+    }
+
+    /**
+     * Receives the tiles overlapped by a circle
+     */
+    private interface TileVisitor {
+
+        /**
+         * Receives one tile overlapped by a circle
+         *
+         * @param circle index of the circle in the buffer
+         * @param tile index of the tile, row by row
+         */
+        void visit(int circle, int tile);
+    }
+}
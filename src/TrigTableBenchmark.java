@@ -0,0 +1,125 @@
+import java.awt.Color;
+
+/**
+ * Checks and times the trigonometry table mode of GenerateFractal. Every fractal
+ * up to MAX_CHECKED circles at depths 1 to 20 and ratios 40 to 85 is generated with
+ * Math.cos and Math.sin and with the table, sequentially and in parallel, and the
+ * coordinates must match within TOLERANCE. Then one large fractal is generated
+ * repeatedly in both modes, bypassing the cache, and the best times are printed.
+ * Throws IllegalStateException on the first mismatch
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public class TrigTableBenchmark {
+
+    /** largest difference allowed between computed and table coordinates */
+    private static final double TOLERANCE = 1e-9;
+    /** largest fractal compared, in circles */
+    private static final long MAX_CHECKED = 2_000_000;
+    /** default recursion depth of the timed fractal */
+    private static final int DEPTH = 22;
+    /** default child to parent ratio of the timed fractal */
+    private static final int RATIO = 85;
+    /** untimed runs before timing */
+    private static final int WARMUP = 5;
+    /** timed runs, the best one is kept */
+    private static final int RUNS = 10;
+
+    /**
+     * Application main method
+     * @param args optional recursion depth and ratio of the timed fractal
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEPTH;
+        int ratio = args.length > 1 ? Integer.parseInt(args[1]) : RATIO;
+        double worst = 0;
+        for (int c2pRatio = 40; c2pRatio <= 85; c2pRatio += 5) {
+            for (int recursionDepth = 1; recursionDepth <= 20; recursionDepth++) {
+                if (GenerateFractal.predictCircleCount(recursionDepth, c2pRatio / 100.0) > MAX_CHECKED) {
+                    continue;
+                }
+                CircleBuffer computed = generate(recursionDepth, c2pRatio, false, false);
+                worst = Math.max(worst, compare(computed, generate(recursionDepth, c2pRatio, true, false)));
+                worst = Math.max(worst, compare(computed, generate(recursionDepth, c2pRatio, true, true)));
+            }
+        }
+        System.out.printf("coordinates match within %.1e, largest difference %.3e%n", TOLERANCE, worst);
+
+        long computedNanos = time(depth, ratio, false);
+        long tableNanos = time(depth, ratio, true);
+        System.out.printf("depth %d, ratio %d, %d circles: Math.cos/sin %.1f ms, table %.1f ms, %.2fx faster%n",
+                depth, ratio, GenerateFractal.predictCircleCount(depth, ratio / 100.0),
+                computedNanos / 1e6, tableNanos / 1e6, computedNanos / (double) tableNanos);
+    }
+
+    /**
+     * Generates a fractal, bypassing the cache
+     *
+     * @param recursionDepth recursion depth of the fractal
+     * @param c2pRatio child to parent ratio in percent
+     * @param trigTable whether the trigonometry table is used
+     * @param parallel whether the fractal is generated in parallel
+     * @return a buffer holding the circles
+     */
+    private static CircleBuffer generate(int recursionDepth, int c2pRatio, boolean trigTable, boolean parallel) {
+        GenerateFractal generator = new GenerateFractal();
+        generator.setTrigTable(trigTable);
+        generator.setParallel(parallel);
+        generator.setData(recursionDepth, c2pRatio, Color.GREEN, Color.RED);
+        return generator.getBuffer();
+    }
+
+    /**
+     * Compares the circles of two fractals
+     *
+     * @param expected circles generated with Math.cos and Math.sin
+     * @param actual circles generated with the table
+     * @return largest difference between the coordinates
+     */
+    private static double compare(CircleBuffer expected, CircleBuffer actual) {
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException("size " + actual.size() + ", expected " + expected.size());
+        }
+        double worst = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            double difference = Math.max(Math.abs(expected.getX(i) - actual.getX(i)), Math.abs(expected.getY(i) - actual.getY(i)));
+            if (difference > TOLERANCE || expected.getDiameter(i) != actual.getDiameter(i)
+                    || expected.getColorIndex(i) != actual.getColorIndex(i)) {
+                throw new IllegalStateException("circle " + i + " differs by " + difference);
+            }
+            worst = Math.max(worst, difference);
+        }
+        return worst;
+    }
+
+    /**
+     * Times the generation of a fractal, streaming its circles so neither the cache
+     * nor a buffer is involved
+     *
+     * @param recursionDepth recursion depth of the fractal
+     * @param c2pRatio child to parent ratio in percent
+     * @param trigTable whether the trigonometry table is used
+     * @return best time of RUNS runs in nanoseconds
+     */
+    private static long time(int recursionDepth, int c2pRatio, boolean trigTable) {
+        GenerateFractal generator = new GenerateFractal();
+        generator.setTrigTable(trigTable);
+        generator.setData(recursionDepth, c2pRatio, Color.GREEN, Color.RED);
+        double[] sink = new double[1];
+        CircleConsumer consumer = (x, y, diameter, colorIndex) -> sink[0] += x + y;
+        for (int run = 0; run < WARMUP; run++) {
+            generator.forEachCircle(consumer);
+        }
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            generator.forEachCircle(consumer);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (Double.isNaN(sink[0])) {
+            throw new IllegalStateException("coordinate is not a number");
+        }
+        return best;
+    }
+}
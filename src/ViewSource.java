@@ -0,0 +1,20 @@
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Interface for the data of a subject as it was when the source was taken, read
+ * from other threads while the subject moves on to newer data
+ *
+ * @author stevenwang
+ * @version 2026-10-18
+ */
+public interface ViewSource {
+
+    /**
+     * Retrieves the part of the data that can be seen through the viewport
+     *
+     * @param viewport visible rectangle in the coordinates of the drawing, null for all of it
+     * @param maxDepth largest recursion depth to include, for quick coarse previews
+     * @return a buffer holding the visible circles
+     */
+    CircleBuffer getBuffer(Rectangle2D viewport, int maxDepth);
+}